@@ -0,0 +1,82 @@
+package examples.chapter01;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.LongSupplier;
+
+/**
+ * The harness the *Benchmark classes share. A benchmark is a main class that runs all its cases once per round, for
+ * ROUNDS rounds. The earlier rounds give the JIT time to compile everything, so only the last one is worth reading.
+ * Within a round, each case is run a few times in a row and timed as a whole.
+ *
+ * A case returns a checksum, which gets printed, so the JIT can't decide its result is unused and skip the work.
+ *
+ * time also reports how many bytes were allocated per unit of work. That comes from the HotSpot ThreadMXBean, which
+ * only counts the current thread, so cases that hand work to other threads should use timeThroughput instead.
+ */
+public class Benchmarks {
+
+  public static final int ROUNDS = 3;
+
+  private static final com.sun.management.ThreadMXBean THREADS =
+    (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  /**
+   * One round of a benchmark, which times each of its cases once
+   */
+  public interface Round {
+    void run() throws Exception;
+  }
+
+  /**
+   * Runs round ROUNDS times, labelling which ones are warmup
+   *
+   * @param round times every case once
+   * @throws Exception whatever round throws
+   */
+  public static void rounds(Round round) throws Exception {
+    for (int i = 0; i < ROUNDS; i++) {
+      System.out.println();
+      System.out.println(i < ROUNDS - 1 ? "warmup " + (i + 1) : "measured");
+      round.run();
+    }
+  }
+
+  /**
+   * Runs a case reps times on this thread, and prints how many million units of work per second that came to, and how
+   * many bytes it allocated per unit
+   *
+   * @param name what to call the case
+   * @param reps how many times to run it
+   * @param units how much work one run does
+   * @param unit what the work is counted in, singular, like "byte" or "line"
+   * @param c the case, returns a checksum
+   */
+  public static void time(String name, int reps, long units, String unit, LongSupplier c) {
+    long thread = Thread.currentThread().getId();
+    long bytesBefore = THREADS.getThreadAllocatedBytes(thread);
+    long start = System.nanoTime();
+
+    long check = 0;
+    for (int i = 0; i < reps; i++) check += c.getAsLong();
+
+    long nanos = System.nanoTime() - start;
+    long bytes = THREADS.getThreadAllocatedBytes(thread) - bytesBefore;
+    double total = (double) units * reps;
+
+    System.out.printf("%-30s %9.1f M %ss/s %8.2f bytes/%s  (%d)%n",
+      name, total / nanos * 1e3, unit, bytes / total, unit, check);
+  }
+
+  /**
+   * Same as time, without the allocation count, for cases that do their work on other threads
+   */
+  public static void timeThroughput(String name, int reps, long units, String unit, LongSupplier c) {
+    long start = System.nanoTime();
+
+    long check = 0;
+    for (int i = 0; i < reps; i++) check += c.getAsLong();
+
+    long nanos = System.nanoTime() - start;
+    System.out.printf("%-30s %9.1f M %ss/s  (%d)%n", name, (double) units * reps / nanos * 1e3, unit, check);
+  }
+}
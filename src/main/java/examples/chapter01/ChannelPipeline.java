@@ -0,0 +1,184 @@
+package examples.chapter01;
+
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * The batch mode for the REPL examples (Rot13Input, Reverser, FactorialQuoter). Reading a line, printing a prompt, and
+ * flushing System.out for every line is fine for someone typing, but it crawls when a big file is piped in. This
+ * reads the input in big chunks into a direct ByteBuffer instead, transforms the bytes where they are when it can,
+ * and writes through one buffered writer that only goes to the channel when its buffer fills up, or at the end.
+ *
+ * Input and output are bytes, assumed to be UTF-8 (or ASCII). There are no prompts, and no "quit": batch mode runs
+ * until the end of the input.
+ */
+public class ChannelPipeline {
+
+  public static final int CHUNK_BYTES = 1 << 20;
+
+  /**
+   * Transforms the bytes buf[off] through buf[off + len - 1], in place. Must work on any chunk, no matter where it
+   * starts or ends, so it's only for transforms that look at one byte at a time, like Rot13
+   */
+  public interface ChunkTransform {
+    void apply(ByteBuffer buf, int off, int len);
+  }
+
+  /**
+   * Transforms one line, buf[off] through buf[off + len - 1] (without its line ending), writing whatever it wants to
+   * out. The pipeline writes the line ending afterwards. It can use buf as scratch space, but only within the line
+   */
+  public interface LineTransform {
+    void apply(ByteBuffer buf, int off, int len, ChannelWriter out) throws IOException;
+  }
+
+  /**
+   * @return stdin as a channel
+   */
+  public static ReadableByteChannel stdin() {
+    return new FileInputStream(FileDescriptor.in).getChannel();
+  }
+
+  /**
+   * @return stdout as a channel. Bypasses System.out, so don't mix the two
+   */
+  public static WritableByteChannel stdout() {
+    return new FileOutputStream(FileDescriptor.out).getChannel();
+  }
+
+  /**
+   * Reads chunks from in, transforms each one in place, and writes it straight back out from the same buffer
+   *
+   * @param in where to read from, until the end
+   * @param out where to write to
+   * @param transform what to do to each chunk
+   * @throws IOException if either channel fails
+   */
+  public static void transformChunks(ReadableByteChannel in, WritableByteChannel out, ChunkTransform transform)
+      throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_BYTES);
+
+    while (in.read(buffer) >= 0) {
+      // Keep reading until the buffer is full, or we run out. Pipes tend to hand over a few KB at a time
+      if (buffer.hasRemaining()) continue;
+      flushChunk(buffer, out, transform);
+    }
+
+    flushChunk(buffer, out, transform);
+  }
+
+  private static void flushChunk(ByteBuffer buffer, WritableByteChannel out, ChunkTransform transform)
+      throws IOException {
+    buffer.flip();
+    transform.apply(buffer, 0, buffer.limit());
+    while (buffer.hasRemaining()) out.write(buffer);
+    buffer.clear();
+  }
+
+  /**
+   * Splits the input into lines, and calls transform on each one. Lines end with \n or \r\n, and keep whichever they
+   * had. Lines longer than a chunk are fine, the buffer grows to fit them
+   *
+   * @param in where to read from, until the end
+   * @param out where to write to
+   * @param transform what to do to each line
+   * @throws IOException if either channel fails
+   */
+  public static void transformLines(ReadableByteChannel in, WritableByteChannel out, LineTransform transform)
+      throws IOException {
+    transformLines(in, out, transform, CHUNK_BYTES);
+  }
+
+  static void transformLines(ReadableByteChannel in, WritableByteChannel out, LineTransform transform, int chunkBytes)
+      throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(chunkBytes);
+    ChannelWriter writer = new ChannelWriter(out, chunkBytes);
+    boolean eof = false;
+
+    while (!eof) {
+      eof = in.read(buffer) < 0;
+      if (!eof && buffer.hasRemaining()) continue;  // fill the buffer first, see transformChunks
+
+      int end = buffer.position();
+      int start = 0;
+
+      for (int i = 0; i < end; i++) {
+        if (buffer.get(i) != '\n') continue;
+
+        boolean crlf = i > start && buffer.get(i - 1) == '\r';
+        transform.apply(buffer, start, (crlf ? i - 1 : i) - start, writer);
+        writer.write(buffer, crlf ? i - 1 : i, crlf ? 2 : 1);
+        start = i + 1;
+      }
+
+      if (eof) {
+        // A last line with no line ending
+        if (start < end) transform.apply(buffer, start, end - start, writer);
+      } else if (start == 0) {
+        // Not even one whole line in the buffer, so it has to get bigger
+        ByteBuffer bigger = ByteBuffer.allocateDirect(2 * buffer.capacity());
+        buffer.flip();
+        bigger.put(buffer);
+        buffer = bigger;
+      } else {
+        // Move the partial line at the end to the front, and read the rest of it after
+        buffer.limit(end).position(start);
+        buffer.compact();
+      }
+    }
+
+    writer.flush();
+  }
+
+  /**
+   * Collects output in a direct buffer, and only writes it to the channel when the buffer's full, or on flush
+   */
+  public static class ChannelWriter {
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+
+    ChannelWriter(WritableByteChannel channel, int bufferBytes) {
+      this.channel = channel;
+      this.buffer = ByteBuffer.allocateDirect(bufferBytes);
+    }
+
+    /**
+     * Writes src[off] through src[off + len - 1]
+     */
+    public void write(ByteBuffer src, int off, int len) throws IOException {
+      ByteBuffer range = src.duplicate();
+      range.limit(off + len).position(off);
+
+      while (range.hasRemaining()) {
+        if (!buffer.hasRemaining()) flush();
+
+        int n = Math.min(range.remaining(), buffer.remaining());
+        ByteBuffer part = range.duplicate();
+        part.limit(part.position() + n);
+        buffer.put(part);
+        range.position(range.position() + n);
+      }
+    }
+
+    /**
+     * Writes a string that's all ASCII, a byte per char
+     */
+    public void writeAscii(CharSequence s) throws IOException {
+      for (int i = 0; i < s.length(); i++) {
+        if (!buffer.hasRemaining()) flush();
+        buffer.put((byte) s.charAt(i));
+      }
+    }
+
+    public void flush() throws IOException {
+      buffer.flip();
+      while (buffer.hasRemaining()) channel.write(buffer);
+      buffer.clear();
+    }
+  }
+}
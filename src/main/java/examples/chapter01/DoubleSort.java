@@ -0,0 +1,434 @@
+package examples.chapter01;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Sorts arrays of doubles into the same order as Arrays.sort: ascending, with -0.0 before 0.0 and every NaN at the end
+ * (the order Double.compare defines). Plain {@code <} can't do that on its own, since it says -0.0 == 0.0 and NaN is
+ * neither bigger nor smaller than anything, so the comparison sort moves the NaNs out of the way first, sorts with
+ * {@code <}, and then puts the zeros in the right order.
+ *
+ * Small and medium arrays get an introsort: quicksort with a median of three pivot, insertion sort once a slice gets
+ * small, and heapsort if the quicksort goes badly (too deep), so it's O(n log n) on any input. It works entirely in
+ * place, and doesn't allocate anything.
+ *
+ * Large arrays get an LSD radix sort instead, on the IEEE-754 bits of each double, flipped so that comparing them as
+ * unsigned longs gives the same order as Double.compare. That's 8 linear passes of one byte each, no comparisons at
+ * all, and passes where every number has the same byte are skipped. It needs two long[] buffers the size of the input.
+ *
+ * parallelSort is a merge sort on a ForkJoinPool: the array is cut into a few pieces per thread, each piece is
+ * introsorted in place, and the pieces are merged back together, with the big merges split up between threads too. The
+ * only thing it allocates is one scratch array the size of the input (the pieces don't use the radix sort, which would
+ * want two long[]s each). It merges back and forth between that and the input, so nothing gets copied just to get it
+ * back where it started.
+ */
+public class DoubleSort {
+  // Slices this small are faster to insertion sort than to partition
+  static final int INSERTION_SORT_THRESHOLD = 32;
+
+  // Arrays at least this big are radix sorted. Below this the O(n) allocation and 8 passes don't pay for themselves
+  static final int RADIX_SORT_THRESHOLD = 1 << 13;
+
+  // Arrays smaller than this aren't worth splitting up, parallelSort just calls sort
+  static final int PARALLEL_THRESHOLD = 1 << 17;
+
+  // The smallest piece parallelSort sorts on its own, and the smallest merge it splits between threads
+  static final int MIN_LEAF_SIZE = 1 << 14;
+  static final int MIN_MERGE_SIZE = 1 << 13;
+
+  /**
+   * Sorts the whole array, in place
+   *
+   * @param a array to sort
+   */
+  public static void sort(double[] a) {
+    sort(a, 0, a.length);
+  }
+
+  /**
+   * Sorts a[from] through a[to - 1], leaving the rest of the array alone
+   *
+   * @param a array to sort
+   * @param from first index to sort, inclusive
+   * @param to last index to sort, exclusive
+   */
+  public static void sort(double[] a, int from, int to) {
+    checkRange(a, from, to);
+
+    if (to - from >= RADIX_SORT_THRESHOLD) {
+      radixSort(a, from, to);
+    } else {
+      introSort(a, from, to);
+    }
+  }
+
+  /**
+   * Sorts the whole array on the common ForkJoinPool. Same order as sort
+   *
+   * @param a array to sort
+   */
+  public static void parallelSort(double[] a) {
+    parallelSort(a, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Sorts the whole array on the given pool. Same order as sort
+   *
+   * @param a array to sort
+   * @param pool pool to run on
+   */
+  public static void parallelSort(double[] a, ForkJoinPool pool) {
+    if (a.length < PARALLEL_THRESHOLD || pool.getParallelism() == 1) {
+      sort(a);
+      return;
+    }
+
+    // Just like introSort, the merges compare with <, so the NaNs go to the end first and the zeros get fixed last
+    int end = moveNaNsToEnd(a, 0, a.length);
+    int leafSize = Math.max(MIN_LEAF_SIZE, end / (pool.getParallelism() * 8));
+
+    pool.invoke(new SortTask(a, new double[end], 0, end, leafSize, false));
+    orderZeros(a, 0, end);
+  }
+
+  /**
+   * The comparison sort, whatever the size of the array. In place, and allocation free
+   */
+  static void introSort(double[] a, int from, int to) {
+    checkRange(a, from, to);
+
+    int end = moveNaNsToEnd(a, from, to);
+    sortWithLessThan(a, from, end);
+    orderZeros(a, from, end);
+  }
+
+  /**
+   * introSort without the NaN and zero fixing, for when the caller does those
+   */
+  private static void sortWithLessThan(double[] a, int lo, int hi) {
+    introSort(a, lo, hi, 2 * (31 - Integer.numberOfLeadingZeros(Math.max(hi - lo, 1))));
+  }
+
+  /**
+   * The radix sort, whatever the size of the array. NaNs all come out as the canonical Double.NaN
+   */
+  static void radixSort(double[] a, int from, int to) {
+    checkRange(a, from, to);
+
+    int n = to - from;
+    if (n < 2) return;
+
+    long[] keys = new long[n];
+    long[] buffer = new long[n];
+    int[][] counts = new int[8][256];  // a histogram for every byte, all filled in on one pass
+
+    for (int i = 0; i < n; i++) {
+      long key = toKey(a[from + i]);
+      keys[i] = key;
+      for (int digit = 0; digit < 8; digit++) {
+        counts[digit][(int) (key >>> (8 * digit)) & 0xff]++;
+      }
+    }
+
+    for (int digit = 0; digit < 8; digit++) {
+      int shift = 8 * digit;
+      int[] offsets = counts[digit];
+
+      // Every key has the same byte here, so this pass wouldn't move anything
+      if (offsets[(int) (keys[0] >>> shift) & 0xff] == n) continue;
+
+      int total = 0;
+      for (int b = 0; b < 256; b++) {
+        int count = offsets[b];
+        offsets[b] = total;
+        total += count;
+      }
+
+      for (int i = 0; i < n; i++) {
+        long key = keys[i];
+        buffer[offsets[(int) (key >>> shift) & 0xff]++] = key;
+      }
+
+      long[] tmp = keys;
+      keys = buffer;
+      buffer = tmp;
+    }
+
+    for (int i = 0; i < n; i++) {
+      a[from + i] = fromKey(keys[i]);
+    }
+  }
+
+  /**
+   * Maps a double to a long that sorts the same way, when compared as unsigned. Positive numbers get their sign bit
+   * set, so they're above all the negatives; negative numbers get all their bits flipped, so that bigger magnitudes
+   * come first. NaNs are made canonical, so they all end up together at the top
+   */
+  static long toKey(double d) {
+    long bits = Double.doubleToLongBits(d);
+    return bits ^ ((bits >> 63) | Long.MIN_VALUE);
+  }
+
+  static double fromKey(long key) {
+    long bits = key < 0 ? key ^ Long.MIN_VALUE : ~key;
+    return Double.longBitsToDouble(bits);
+  }
+
+  /**
+   * Swaps every NaN to the end of the range, and returns where the NaNs start
+   */
+  private static int moveNaNsToEnd(double[] a, int from, int to) {
+    int end = to;
+
+    for (int i = from; i < end; ) {
+      if (a[i] != a[i]) {  // only true for NaN
+        end--;
+        double tmp = a[i];
+        a[i] = a[end];
+        a[end] = tmp;
+      } else {
+        i++;
+      }
+    }
+
+    return end;
+  }
+
+  /**
+   * Sorts [lo, hi). Recurses on the smaller side and loops on the bigger side, so the stack is O(log n) deep
+   */
+  private static void introSort(double[] a, int lo, int hi, int depthLimit) {
+    while (hi - lo > INSERTION_SORT_THRESHOLD) {
+      if (depthLimit-- == 0) {
+        heapSort(a, lo, hi);
+        return;
+      }
+
+      int split = partition(a, lo, hi);
+      if (split - lo < hi - split) {
+        introSort(a, lo, split, depthLimit);
+        lo = split;
+      } else {
+        introSort(a, split, hi, depthLimit);
+        hi = split;
+      }
+    }
+
+    insertionSort(a, lo, hi);
+  }
+
+  /**
+   * Hoare partition around the median of the first, middle and last elements. Returns split, with everything in
+   * [lo, split) <= everything in [split, hi), and neither side empty
+   */
+  private static int partition(double[] a, int lo, int hi) {
+    int mid = lo + ((hi - 1 - lo) >>> 1);
+
+    // Sorting the three also puts a sentinel at each end, so neither scan can run off the slice
+    if (a[mid] < a[lo]) swap(a, mid, lo);
+    if (a[hi - 1] < a[mid]) {
+      swap(a, hi - 1, mid);
+      if (a[mid] < a[lo]) swap(a, mid, lo);
+    }
+
+    double pivot = a[mid];
+    int i = lo - 1, j = hi;
+
+    while (true) {
+      do i++; while (a[i] < pivot);
+      do j--; while (a[j] > pivot);
+
+      if (i >= j) return j + 1;
+      swap(a, i, j);
+    }
+  }
+
+  private static void insertionSort(double[] a, int lo, int hi) {
+    for (int i = lo + 1; i < hi; i++) {
+      double x = a[i];
+      int j = i - 1;
+
+      while (j >= lo && a[j] > x) {
+        a[j + 1] = a[j];
+        j--;
+      }
+      a[j + 1] = x;
+    }
+  }
+
+  private static void heapSort(double[] a, int lo, int hi) {
+    int n = hi - lo;
+
+    for (int i = n / 2 - 1; i >= 0; i--) {
+      siftDown(a, lo, i, n);
+    }
+
+    for (int end = n - 1; end > 0; end--) {
+      swap(a, lo, lo + end);
+      siftDown(a, lo, 0, end);
+    }
+  }
+
+  private static void siftDown(double[] a, int lo, int i, int n) {
+    double x = a[lo + i];
+
+    while (true) {
+      int child = 2 * i + 1;
+      if (child >= n) break;
+      if (child + 1 < n && a[lo + child + 1] > a[lo + child]) child++;
+      if (a[lo + child] <= x) break;
+
+      a[lo + i] = a[lo + child];
+      i = child;
+    }
+
+    a[lo + i] = x;
+  }
+
+  /**
+   * After sorting with {@code <}, all the zeros are together, but -0.0 and 0.0 are mixed up. Finds them, counts the
+   * negative ones, and rewrites the run with those first
+   */
+  private static void orderZeros(double[] a, int from, int to) {
+    // The first index that isn't < 0.0
+    int lo = from, hi = to;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (a[mid] < 0.0) lo = mid + 1;
+      else hi = mid;
+    }
+
+    int negativeZeros = 0, end = lo;
+    for (; end < to && a[end] == 0.0; end++) {
+      if (Double.doubleToRawLongBits(a[end]) != 0) negativeZeros++;
+    }
+
+    for (int i = lo; i < end; i++) {
+      a[i] = i < lo + negativeZeros ? -0.0 : 0.0;
+    }
+  }
+
+  /**
+   * Sorts a[lo, hi), leaving the result in either a or scratch (in the same positions). The halves are sorted into
+   * whichever array this one isn't leaving its result in, so the merge can go straight into the right one. A leaf that
+   * has to end up in scratch sorts its two halves in place and merges them across, rather than sorting and copying
+   */
+  private static class SortTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final double[] a, scratch;
+    private final int lo, hi, leafSize;
+    private final boolean intoScratch;
+
+    SortTask(double[] a, double[] scratch, int lo, int hi, int leafSize, boolean intoScratch) {
+      this.a = a;
+      this.scratch = scratch;
+      this.lo = lo;
+      this.hi = hi;
+      this.leafSize = leafSize;
+      this.intoScratch = intoScratch;
+    }
+
+    @Override
+    protected void compute() {
+      int mid = (lo + hi) >>> 1;
+
+      if (hi - lo <= leafSize) {
+        if (intoScratch) {
+          sortWithLessThan(a, lo, mid);
+          sortWithLessThan(a, mid, hi);
+          new MergeTask(a, lo, mid, mid, hi, scratch, lo).compute();
+        } else {
+          sortWithLessThan(a, lo, hi);
+        }
+        return;
+      }
+
+      invokeAll(new SortTask(a, scratch, lo, mid, leafSize, !intoScratch),
+                new SortTask(a, scratch, mid, hi, leafSize, !intoScratch));
+
+      double[] from = intoScratch ? a : scratch;
+      double[] to = intoScratch ? scratch : a;
+      new MergeTask(from, lo, mid, mid, hi, to, lo).compute();
+    }
+  }
+
+  /**
+   * Merges the sorted runs from[lo1, hi1) and from[lo2, hi2) into to, starting at out. Big merges are split in two by
+   * taking the middle of the longer run and binary searching for where it goes in the shorter one. Everything before
+   * that point in both runs goes in the first half of the output, everything after in the second
+   */
+  private static class MergeTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final double[] from, to;
+    private final int lo1, hi1, lo2, hi2, out;
+
+    MergeTask(double[] from, int lo1, int hi1, int lo2, int hi2, double[] to, int out) {
+      this.from = from;
+      this.lo1 = lo1;
+      this.hi1 = hi1;
+      this.lo2 = lo2;
+      this.hi2 = hi2;
+      this.to = to;
+      this.out = out;
+    }
+
+    @Override
+    protected void compute() {
+      int n1 = hi1 - lo1, n2 = hi2 - lo2;
+
+      if (n1 + n2 <= MIN_MERGE_SIZE) {
+        merge();
+        return;
+      }
+
+      int split1, split2;
+      if (n1 >= n2) {
+        split1 = lo1 + n1 / 2;
+        split2 = lowerBound(from, lo2, hi2, from[split1]);
+      } else {
+        split2 = lo2 + n2 / 2;
+        split1 = lowerBound(from, lo1, hi1, from[split2]);
+      }
+
+      int outSplit = out + (split1 - lo1) + (split2 - lo2);
+      invokeAll(new MergeTask(from, lo1, split1, lo2, split2, to, out),
+                new MergeTask(from, split1, hi1, split2, hi2, to, outSplit));
+    }
+
+    private void merge() {
+      int i = lo1, j = lo2, k = out;
+
+      while (i < hi1 && j < hi2) {
+        to[k++] = from[j] < from[i] ? from[j++] : from[i++];
+      }
+      while (i < hi1) to[k++] = from[i++];
+      while (j < hi2) to[k++] = from[j++];
+    }
+
+    /**
+     * The first index in a[lo, hi) whose value isn't < x
+     */
+    private static int lowerBound(double[] a, int lo, int hi, double x) {
+      while (lo < hi) {
+        int mid = (lo + hi) >>> 1;
+        if (a[mid] < x) lo = mid + 1;
+        else hi = mid;
+      }
+      return lo;
+    }
+  }
+
+  private static void swap(double[] a, int i, int j) {
+    double tmp = a[i];
+    a[i] = a[j];
+    a[j] = tmp;
+  }
+
+  private static void checkRange(double[] a, int from, int to) {
+    if (from < 0 || from > to || to > a.length)
+      throw new IllegalArgumentException("Invalid range [" + from + ", " + to + ") for length " + a.length);
+  }
+}
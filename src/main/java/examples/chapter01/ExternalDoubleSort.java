@@ -0,0 +1,321 @@
+package examples.chapter01;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Sorts a file of doubles that may be too big to fit in memory. The file is just the doubles, 8 bytes each, big-endian
+ * (the way DataOutputStream and ByteBuffer write them), and the sorted output is written in the same format.
+ *
+ * Works in two phases. First the input is read a run at a time, each run is sorted in memory with DoubleSort, and
+ * spilled to a temporary file. Then the runs are merged, fanIn at a time, by a k-way merge that keeps the next double
+ * from every run in a heap. If there are more than fanIn runs, it takes more than one pass: each pass merges groups of
+ * fanIn runs into longer runs, until there are few enough left to merge straight into the output.
+ *
+ * Memory use is about 3 * 8 * runSize bytes while sorting a run (the run, plus the two buffers DoubleSort's radix sort
+ * needs), and fanIn + 1 I/O buffers of BUFFER_BYTES each while merging.
+ */
+public class ExternalDoubleSort {
+
+  // 16M doubles, a 128MB run
+  public static final int DEFAULT_RUN_SIZE = 1 << 24;
+  public static final int DEFAULT_FAN_IN = 64;
+
+  // Size of the buffer for each file we're reading or writing at once
+  static final int BUFFER_BYTES = 1 << 16;
+
+  private final int runSize;
+  private final int fanIn;
+  private final Path tempDir;
+
+  public ExternalDoubleSort() {
+    this(DEFAULT_RUN_SIZE, DEFAULT_FAN_IN, Paths.get(System.getProperty("java.io.tmpdir")));
+  }
+
+  /**
+   * @param runSize how many doubles to sort in memory at once
+   * @param fanIn how many runs to merge at once, at least 2
+   * @param tempDir where to put the runs while they're waiting to be merged
+   */
+  public ExternalDoubleSort(int runSize, int fanIn, Path tempDir) {
+    if (runSize < 1) throw new IllegalArgumentException("runSize must be >= 1, was " + runSize);
+    if (fanIn < 2) throw new IllegalArgumentException("fanIn must be >= 2, was " + fanIn);
+
+    this.runSize = runSize;
+    this.fanIn = fanIn;
+    this.tempDir = tempDir;
+  }
+
+  /**
+   * Sorts the doubles in one file into another. They can't be the same file
+   *
+   * @param in file to read the doubles from
+   * @param out file to write the sorted doubles to, replacing anything already there
+   * @return how much was sorted, and how fast
+   * @throws IOException if any of the files can't be read or written
+   */
+  public Stats sort(Path in, Path out) throws IOException {
+    long start = System.nanoTime();
+    List<Path> runs = new ArrayList<>();
+    List<Path> merged = new ArrayList<>();  // the next pass's runs, added as soon as each one exists
+    int passes = 0;
+    long bytes;
+
+    try {
+      bytes = writeRuns(in, runs);
+      int initialRuns = runs.size();
+
+      while (runs.size() > fanIn) {
+        for (int i = 0; i < runs.size(); i += fanIn) {
+          List<Path> group = runs.subList(i, Math.min(runs.size(), i + fanIn));
+          Path run = Files.createTempFile(tempDir, "run", ".bin");
+          merged.add(run);
+          merge(group, run);
+          for (Path p : group) Files.delete(p);
+        }
+        runs = merged;
+        merged = new ArrayList<>();
+        passes++;
+      }
+
+      merge(runs, out);
+      passes++;
+
+      return new Stats(bytes, initialRuns, passes, System.nanoTime() - start);
+    } finally {
+      for (Path run : runs) Files.deleteIfExists(run);
+      for (Path run : merged) Files.deleteIfExists(run);
+    }
+  }
+
+  /**
+   * Reads the input a run at a time, sorts each run, and writes it to its own temp file, which gets added to runs as
+   * soon as it exists (so it's cleaned up even if something goes wrong)
+   */
+  private long writeRuns(Path in, List<Path> runs) throws IOException {
+    try (FileChannel channel = FileChannel.open(in, READ)) {
+      long size = channel.size();
+      if (size % 8 != 0) throw new IllegalArgumentException(in + " is " + size + " bytes, not a whole number of doubles");
+
+      double[] run = new double[(int) Math.min(runSize, size / 8)];
+      ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+      long remaining = size / 8;
+
+      while (remaining > 0) {
+        int n = (int) Math.min(run.length, remaining);
+        read(channel, buffer, run, n);
+        remaining -= n;
+
+        DoubleSort.sort(run, 0, n);
+
+        Path file = Files.createTempFile(tempDir, "run", ".bin");
+        runs.add(file);
+        try (FileChannel runChannel = FileChannel.open(file, WRITE)) {
+          write(runChannel, buffer, run, n);
+        }
+      }
+
+      return size;
+    }
+  }
+
+  /**
+   * K-way merges the runs into out, with a binary heap of the runs, ordered by their next double
+   */
+  private static void merge(List<Path> runs, Path out) throws IOException {
+    RunReader[] readers = new RunReader[runs.size()];
+
+    try (FileChannel outChannel = FileChannel.open(out, CREATE, WRITE, TRUNCATE_EXISTING)) {
+      for (int i = 0; i < readers.length; i++) {
+        readers[i] = new RunReader(FileChannel.open(runs.get(i), READ));
+      }
+
+      // heap[0] is the reader with the smallest next double. keys[r] is readers[r]'s next double, as a long that
+      // compares the same way (see DoubleSort.toKey). It's kept separately so the heap doesn't chase pointers
+      int[] heap = new int[readers.length];
+      long[] keys = new long[readers.length];
+      int size = 0;
+
+      for (int r = 0; r < readers.length; r++) {
+        if (readers[r].advance()) {
+          keys[r] = DoubleSort.toKey(readers[r].next) ^ Long.MIN_VALUE;  // flipped, so it compares signed
+          heap[size++] = r;
+        }
+      }
+      for (int i = size / 2 - 1; i >= 0; i--) siftDown(heap, keys, i, size);
+
+      ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+      DoubleBuffer doubles = buffer.asDoubleBuffer();
+
+      while (size > 0) {
+        int r = heap[0];
+        doubles.put(readers[r].next);
+        if (!doubles.hasRemaining()) {
+          flush(outChannel, buffer, doubles.position());
+          doubles.clear();
+        }
+
+        if (readers[r].advance()) {
+          keys[r] = DoubleSort.toKey(readers[r].next) ^ Long.MIN_VALUE;
+        } else {
+          heap[0] = heap[--size];
+        }
+        siftDown(heap, keys, 0, size);
+      }
+
+      flush(outChannel, buffer, doubles.position());
+    } finally {
+      for (RunReader reader : readers) {
+        if (reader != null) reader.channel.close();
+      }
+    }
+  }
+
+  private static void siftDown(int[] heap, long[] keys, int i, int size) {
+    int r = heap[i];
+    long key = keys[r];
+
+    while (true) {
+      int child = 2 * i + 1;
+      if (child >= size) break;
+      if (child + 1 < size && keys[heap[child + 1]] < keys[heap[child]]) child++;
+      if (keys[heap[child]] >= key) break;
+
+      heap[i] = heap[child];
+      i = child;
+    }
+
+    heap[i] = r;
+  }
+
+  /**
+   * Reads n doubles from the channel into run, through the buffer
+   */
+  private static void read(FileChannel channel, ByteBuffer buffer, double[] run, int n) throws IOException {
+    for (int done = 0; done < n; ) {
+      buffer.clear();
+      buffer.limit(Math.min(buffer.capacity(), 8 * (n - done)));
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer) < 0) throw new IOException("Unexpected end of file");
+      }
+
+      buffer.flip();
+      int count = buffer.remaining() / 8;
+      buffer.asDoubleBuffer().get(run, done, count);
+      done += count;
+    }
+  }
+
+  private static void write(FileChannel channel, ByteBuffer buffer, double[] run, int n) throws IOException {
+    for (int done = 0; done < n; ) {
+      int count = Math.min(buffer.capacity() / 8, n - done);
+      buffer.clear();
+      buffer.asDoubleBuffer().put(run, done, count);
+      flush(channel, buffer, count);
+      done += count;
+    }
+  }
+
+  /**
+   * Writes the first count doubles in the buffer to the channel
+   */
+  private static void flush(FileChannel channel, ByteBuffer buffer, int count) throws IOException {
+    buffer.clear();
+    buffer.limit(8 * count);
+    while (buffer.hasRemaining()) channel.write(buffer);
+  }
+
+  /**
+   * One run being merged, read through its own buffer
+   */
+  private static class RunReader {
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    double next;
+
+    RunReader(FileChannel channel) {
+      this.channel = channel;
+      buffer.limit(0);
+    }
+
+    /**
+     * Moves on to the next double in the run
+     *
+     * @return false if there aren't any more
+     */
+    boolean advance() throws IOException {
+      if (!buffer.hasRemaining()) {
+        buffer.clear();
+        while (buffer.hasRemaining() && channel.read(buffer) >= 0) { }
+        buffer.flip();
+        if (!buffer.hasRemaining()) return false;
+      }
+
+      next = buffer.getDouble();
+      return true;
+    }
+  }
+
+  /**
+   * What a sort did, and how long it took
+   */
+  public static class Stats {
+    public final long bytes;
+    public final int runs;
+    public final int mergePasses;
+    public final long nanos;
+
+    Stats(long bytes, int runs, int mergePasses, long nanos) {
+      this.bytes = bytes;
+      this.runs = runs;
+      this.mergePasses = mergePasses;
+      this.nanos = nanos;
+    }
+
+    /**
+     * @return throughput, in MB of input sorted per second
+     */
+    public double megabytesPerSecond() {
+      return bytes / 1e6 / (nanos / 1e9);
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%d bytes, %d runs, %d merge passes, %.1f s, %.1f MB/s",
+        bytes, runs, mergePasses, nanos / 1e9, megabytesPerSecond());
+    }
+  }
+
+  /**
+   * Sorts a file of doubles from the command line, and prints how it went
+   *
+   * To build and run:
+   *   $ javac -sourcepath src/main/java -d build/manual src/main/java/examples/chapter01/ExternalDoubleSort.java
+   *   $ java -cp build/manual examples.chapter01.ExternalDoubleSort in.bin out.bin [runSize] [fanIn]
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.out.println("Usage: ExternalDoubleSort <in> <out> [runSize] [fanIn]");
+      return;
+    }
+
+    int runSize = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_RUN_SIZE;
+    int fanIn = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_FAN_IN;
+    Path out = Paths.get(args[1]);
+
+    ExternalDoubleSort sorter = new ExternalDoubleSort(runSize, fanIn, out.toAbsolutePath().getParent());
+    System.out.println(sorter.sort(Paths.get(args[0]), out));
+  }
+}
@@ -0,0 +1,100 @@
+package examples.chapter01;
+
+import java.math.BigInteger;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Measures how FactorialBig's cached reads scale with the number of threads, against the same reads behind a single
+ * class-wide lock (which is how FactorialBig used to work). Then compares the long versions: Factorial's loop against
+ * FactorialCached's table lookups. The rounds and timing come from Benchmarks.
+ *
+ * To build and run:
+ *   $ javac -sourcepath src/main/java -d build/manual src/main/java/examples/chapter01/FactorialBenchmark.java
+ *   $ java -cp build/manual examples.chapter01.FactorialBenchmark
+ */
+public class FactorialBenchmark {
+
+  // How many FactorialBig calls each thread makes
+  private static final int CALLS_PER_THREAD = 1 << 20;
+
+  public static void main(String[] args) throws Exception {
+    FactorialBig.factorial(FactorialBig.CROSSOVER);  // fill the table, we only want to time reads
+
+    Benchmarks.rounds(() -> {
+      for (int threads : new int[]{1, 8, 32}) {
+        time("FactorialBig.factorial", threads, FactorialBig::factorial);
+        time("synchronized", threads, FactorialBenchmark::lockedFactorial);
+      }
+    });
+
+    Benchmarks.rounds(() -> {
+      time("Factorial.factorial", x -> Factorial.factorial(x));
+      time("FactorialCached.factorial", FactorialCached::factorial);
+      time("FactorialCached.factorialLazy", FactorialCached::factorialLazy);
+    });
+  }
+
+  /**
+   * Single threaded, over all 21 arguments
+   */
+  private static void time(String name, IntToLongFunction f) {
+    Benchmarks.time(name, 2_000_000, 21, "call", () -> {
+      long sum = 0;
+      for (int x = 0; x < 21; x++) sum += f.applyAsLong(x);
+      return sum;
+    });
+  }
+
+  private static synchronized BigInteger lockedFactorial(int x) {
+    return FactorialBig.factorial(x);
+  }
+
+  /**
+   * Calls f on a spread of cached arguments from every thread at once
+   */
+  private static void time(String name, int threads, IntFunction<BigInteger> f) {
+    Benchmarks.timeThroughput(name + " x" + threads, 1, (long) threads * CALLS_PER_THREAD, "call",
+      () -> run(threads, f));
+  }
+
+  /**
+   * @return the total bit length of every result, as a checksum
+   */
+  private static long run(int threads, IntFunction<BigInteger> f) {
+    LongAdder check = new LongAdder();
+    CountDownLatch start = new CountDownLatch(1);
+    Thread[] workers = new Thread[threads];
+
+    for (int t = 0; t < threads; t++) {
+      int seed = t;
+      workers[t] = new Thread(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          return;
+        }
+
+        long sum = 0;
+        int x = seed;
+        for (int i = 0; i < CALLS_PER_THREAD; i++) {
+          x = (x * 31 + 7) & 511;
+          sum += f.apply(x).bitLength();
+        }
+        check.add(sum);
+      });
+      workers[t].start();
+    }
+
+    start.countDown();
+    try {
+      for (Thread worker : workers) worker.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("interrupted waiting for the workers", e);
+    }
+    return check.sum();
+  }
+}
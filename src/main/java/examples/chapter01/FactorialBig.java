@@ -1,26 +1,138 @@
 package examples.chapter01;
 
 import java.math.BigInteger;
-import java.util.ArrayList;
+import java.util.Arrays;
 
+/**
+ * Computes factorials of any size. Small ones are built up one multiply at a time and cached in a table, since
+ * that's cheap and later calls get them for free. Big ones are computed directly, by binary splitting, without
+ * filling in the table: multiplying one step at a time costs time quadratic in the size of the result, while
+ * multiplying balanced halves lets BigInteger's Karatsuba and Toom-Cook multiplication do the heavy lifting.
+ *
+ * Reading from the table takes no lock. The table is an array that's never modified once it's published, so a reader
+ * just grabs the current one. Growing it copies it into a longer array and publishes that, under a lock, so only one
+ * thread does the work while the others wait and then use what it built.
+ *
+ * Big factorials aren't tabulated, since keeping every value up to n! would pin a huge amount of memory. Instead they
+ * go through a FactorialCheckpoints cache, which keeps every CHECKPOINT_INTERVAL-th one, up to a memory budget.
+ */
 public class FactorialBig {
-  protected static ArrayList<BigInteger> table = new ArrayList<>();
-  static {
-    table.add(BigInteger.valueOf(1));
-  }
+  // Above this we compute directly instead of extending the table
+  static final int CROSSOVER = 512;
+
+  // Defaults for the checkpoints of big factorials, both can be changed through checkpoints(). The interval is no
+  // bigger than CROSSOVER, so everything above CROSSOVER has a checkpoint to start from that isn't 0!
+  static final long CHECKPOINT_BUDGET_BYTES = 64L << 20;
+  static final int CHECKPOINT_INTERVAL = CROSSOVER;
+
+  // Ranges with this many numbers or fewer get multiplied with longs, not split further
+  private static final int LEAF_SIZE = 16;
+
+  // 0! up to (table.length - 1)!. Replaced by a longer copy when it grows, never modified in place
+  protected static volatile BigInteger[] table = {BigInteger.ONE};
 
-  protected static void computeAndCache(int upTo) {
-    for (int size = table.size(); size <= upTo; size++) {
-      BigInteger lastFactorial = table.get(size - 1);
-      BigInteger nextFactorial = lastFactorial.multiply(BigInteger.valueOf(size));
-      table.add(nextFactorial);
+  protected static final FactorialCheckpoints checkpointCache =
+    new FactorialCheckpoints(CHECKPOINT_BUDGET_BYTES, CHECKPOINT_INTERVAL);
+
+  protected static synchronized void computeAndCache(int upTo) {
+    BigInteger[] current = table;
+    if (upTo < current.length) return;  // another thread grew it while we were waiting
+
+    // Grow by at least half again, so that a run of slowly increasing calls doesn't copy the table every time
+    int size = Math.min(CROSSOVER + 1, Math.max(upTo + 1, current.length + (current.length >> 1)));
+    BigInteger[] grown = Arrays.copyOf(current, size);
+
+    for (int i = current.length; i < size; i++) {
+      grown[i] = grown[i - 1].multiply(BigInteger.valueOf(i));
     }
+
+    table = grown;
   }
 
-  public static synchronized BigInteger factorial(int x) {
+  public static BigInteger factorial(int x) {
     if (x < 0) throw new IllegalArgumentException("x must be non-negative.");
+    if (x > CROSSOVER) return checkpointCache.factorial(x);
+
+    BigInteger[] t = table;
+    if (x >= t.length) {
+      computeAndCache(x);
+      t = table;
+    }
+
+    return t[x];
+  }
+
+  /**
+   * The cache used for factorials above CROSSOVER, to tune its budget and interval or read its hit/miss/eviction counts
+   *
+   * @return the checkpoint cache
+   */
+  public static FactorialCheckpoints checkpoints() {
+    return checkpointCache;
+  }
+
+  /**
+   * Computes n! by binary splitting. Pulls all the factors of 2 out (there are n - bitCount(n) of them) and adds them
+   * back at the end with a shift, which leaves the odd part of n!. That's the product, over i >= 0, of the odd numbers
+   * up to n / 2^i, and each of those products extends the previous one, so we build them from the top (smallest)
+   * down, multiplying in a product tree of the new odd numbers each time.
+   *
+   * @param n number to compute the factorial of
+   * @return n!
+   */
+  static BigInteger splitFactorial(int n) {
+    BigInteger oddsUpTo = BigInteger.ONE;  // product of the odd numbers up to n >>> i
+    BigInteger oddPart = BigInteger.ONE;
+
+    for (int i = 31 - Integer.numberOfLeadingZeros(Math.max(n, 1)); i >= 0; i--) {
+      oddsUpTo = oddsUpTo.multiply(oddProduct(n >>> (i + 1), n >>> i));
+      oddPart = oddPart.multiply(oddsUpTo);
+    }
+
+    return oddPart.shiftLeft(n - Integer.bitCount(n));
+  }
+
+  /**
+   * @return the product of the odd numbers m with lo < m <= hi
+   */
+  static BigInteger oddProduct(long lo, long hi) {
+    long first = (lo + 1) | 1;
+    long last = (hi & 1) == 0 ? hi - 1 : hi;
+
+    return first > last ? BigInteger.ONE : product(first, last, 2);
+  }
+
+  /**
+   * @return the product of the numbers m with lo < m <= hi, which is hi! / lo!
+   */
+  static BigInteger rangeProduct(long lo, long hi) {
+    return lo >= hi ? BigInteger.ONE : product(lo + 1, hi, 1);
+  }
+
+  /**
+   * Product of first, first + step, ... up to last, by splitting the range in half until it's small enough to
+   * multiply directly
+   */
+  private static BigInteger product(long first, long last, int step) {
+    long count = (last - first) / step + 1;
+
+    if (count <= LEAF_SIZE) {
+      BigInteger out = BigInteger.ONE;
+      long acc = 1;
+
+      for (long m = first; m <= last; m += step) {
+        if (acc > Long.MAX_VALUE / m) {
+          out = out.multiply(BigInteger.valueOf(acc));
+          acc = m;
+        } else {
+          acc *= m;
+        }
+      }
+
+      return out.multiply(BigInteger.valueOf(acc));
+    }
 
-    computeAndCache(x);
-    return table.get(x);
+    long mid = first + step * (count / 2);  // first number of the upper half
+    return product(first, mid - step, step).multiply(product(mid, last, step));
   }
 }
@@ -4,35 +4,71 @@ package examples.chapter01;
  * This class computes factorials and caches the results in a table. It maxes out at 20!, because that's the highest
  * factorial we can compute with a long. It throws an IllegalArgumentException if the factorial you ask for is too big
  * or too small
+ *
+ * There are only 21 values, so factorial() just reads them from a table that's filled in when the class is loaded and
+ * never changes after that. It's safe from any thread, and small enough for the JIT to inline. factorialLazy() still
+ * fills its table in on demand, for callers who want that, and is also safe to call from many threads at once.
  */
 public class FactorialCached {
-  // For caching values 0! through 20!
+  // 0! through 20!, all filled in up front. Final and never written after the static initializer, so every thread
+  // sees it fully initialized
+  private static final long[] FACTORIALS = new long[21];
+  static {
+    FACTORIALS[0] = 1;
+    for (int i = 1; i < FACTORIALS.length; i++) {
+      FACTORIALS[i] = FACTORIALS[i - 1] * i;
+    }
+  }
+
+  // For lazily caching values 0! through 20!
   static long[] table = new long[21];
 
   // A "static initializer" - we know that the factorial of 0 is 1
   static { table[0] = 1; }
 
-  // Remember the highest initialized value in the array
-  static int last = 0;
+  // Remember the highest initialized value in the array. Volatile, and only written after the entries it covers, so
+  // any thread that reads last is guaranteed to also see table[0] through table[last]
+  static volatile int last = 0;
 
+  /**
+   * Racy, but safe: two threads can both compute the same entries, but they always write the same values to them, so
+   * it doesn't matter who wins. last can even go backwards if a slower thread publishes after a faster one, which just
+   * means a later call recomputes a few entries
+   */
   static void computeAndCache(int x) {
-    while (last < x) {
-      table[last + 1] = table[last] * (last + 1);  // so if we'd previously stored 18!, now store 19!
-      last++;
+    int i = last;
+
+    while (i < x) {
+      table[i + 1] = table[i] * (i + 1);  // so if we'd previously stored 18!, now store 19!
+      i++;
     }
+
+    if (i > last) last = i;
   }
 
   public static long factorial(int x) throws IllegalArgumentException {
-    // Check that x is in bounds
-    if (x >= table.length)
-      throw new IllegalArgumentException("Overflow; x is too large, must be < " + table.length + ", was " + x);
-    if (x < 0)
-      throw new IllegalArgumentException("x must be non-negative, was " + x);
+    checkBounds(x);
+    return FACTORIALS[x];
+  }
+
+  /**
+   * Same as factorial, but computes and caches values the first time they're asked for
+   */
+  public static long factorialLazy(int x) throws IllegalArgumentException {
+    checkBounds(x);
 
     // Compute and cache any values that are not yet cached. Skips entirely if already cached
-    computeAndCache(x);
+    if (x > last) computeAndCache(x);
 
     // Return the cached factorial
     return table[x];
   }
+
+  private static void checkBounds(int x) {
+    // Check that x is in bounds
+    if (x >= FACTORIALS.length)
+      throw new IllegalArgumentException("Overflow; x is too large, must be < " + FACTORIALS.length + ", was " + x);
+    if (x < 0)
+      throw new IllegalArgumentException("x must be non-negative, was " + x);
+  }
 }
@@ -0,0 +1,156 @@
+package examples.chapter01;
+
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A memory-bounded cache for big factorials. Rather than keeping every value it computes, it only keeps checkpoints,
+ * every interval-th factorial, and gets anything in between from the closest checkpoint below it: n! = c! * (c+1) *
+ * ... * n. Once the checkpoints take up more than the budget, the least recently used ones are evicted.
+ *
+ * Lookups and bookkeeping are synchronized, but the multiplying happens outside the lock. So two threads asking for
+ * the same missing checkpoint at once may both compute it, but nobody waits on anybody else's BigInteger arithmetic.
+ */
+public class FactorialCheckpoints {
+
+  // Rough per-entry cost on top of the BigInteger's magnitude: the map entry, the BigInteger and our Checkpoint
+  private static final long ENTRY_OVERHEAD_BYTES = 128;
+
+  private final TreeMap<Integer, Checkpoint> checkpoints = new TreeMap<>();
+  private long budgetBytes;
+  private int interval;
+  private long usedBytes;
+  private long clock;  // bumped on every access, for LRU
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  /**
+   * @param budgetBytes roughly how much memory the checkpoints may use
+   * @param interval keep a checkpoint for every interval-th factorial
+   */
+  public FactorialCheckpoints(long budgetBytes, int interval) {
+    if (budgetBytes < 0) throw new IllegalArgumentException("budgetBytes must be >= 0, was " + budgetBytes);
+    if (interval < 1) throw new IllegalArgumentException("interval must be >= 1, was " + interval);
+
+    this.budgetBytes = budgetBytes;
+    this.interval = interval;
+  }
+
+  /**
+   * Computes n!, starting from the closest checkpoint at or below n if there is one. A hit means the checkpoint for n
+   * was already cached, a miss means it had to be computed (and is now cached, if it fits in the budget)
+   *
+   * @param n number to compute the factorial of
+   * @return n!
+   */
+  public BigInteger factorial(int n) {
+    if (n < 0) throw new IllegalArgumentException("n must be non-negative, was " + n);
+
+    int step;
+    Map.Entry<Integer, Checkpoint> below;
+
+    synchronized (this) {
+      step = interval;
+      below = checkpoints.floorEntry(n);
+      if (below != null) below.getValue().lastUsed = ++clock;
+    }
+
+    int checkpoint = n - n % step;
+
+    if (below != null && below.getKey() >= checkpoint) {
+      hits.incrementAndGet();
+      return below.getValue().value.multiply(FactorialBig.rangeProduct(below.getKey(), n));
+    }
+
+    misses.incrementAndGet();
+
+    BigInteger atCheckpoint = below != null
+      ? below.getValue().value.multiply(FactorialBig.rangeProduct(below.getKey(), checkpoint))
+      : FactorialBig.splitFactorial(checkpoint);
+
+    put(checkpoint, atCheckpoint);
+    return atCheckpoint.multiply(FactorialBig.rangeProduct(checkpoint, n));
+  }
+
+  public synchronized void setBudgetBytes(long budgetBytes) {
+    if (budgetBytes < 0) throw new IllegalArgumentException("budgetBytes must be >= 0, was " + budgetBytes);
+    this.budgetBytes = budgetBytes;
+    evictToBudget();
+  }
+
+  /**
+   * Changes how far apart new checkpoints are. Checkpoints that are already cached stay, they're still good values
+   */
+  public synchronized void setInterval(int interval) {
+    if (interval < 1) throw new IllegalArgumentException("interval must be >= 1, was " + interval);
+    this.interval = interval;
+  }
+
+  public synchronized void clear() {
+    checkpoints.clear();
+    usedBytes = 0;
+  }
+
+  public synchronized int size() {
+    return checkpoints.size();
+  }
+
+  public synchronized long usedBytes() {
+    return usedBytes;
+  }
+
+  public long hits() {
+    return hits.get();
+  }
+
+  public long misses() {
+    return misses.get();
+  }
+
+  public long evictions() {
+    return evictions.get();
+  }
+
+  private synchronized void put(int n, BigInteger value) {
+    long size = value.bitLength() / 8 + ENTRY_OVERHEAD_BYTES;
+    if (size > budgetBytes || checkpoints.containsKey(n)) return;
+
+    checkpoints.put(n, new Checkpoint(value, size, ++clock));
+    usedBytes += size;
+    evictToBudget();
+  }
+
+  /**
+   * Evicts least recently used checkpoints until we're back under budget. A linear scan per eviction, but the budget
+   * keeps the number of checkpoints small, and each one is a big multiply to rebuild anyway
+   */
+  private void evictToBudget() {
+    while (usedBytes > budgetBytes) {
+      Map.Entry<Integer, Checkpoint> oldest = null;
+
+      for (Map.Entry<Integer, Checkpoint> e : checkpoints.entrySet()) {
+        if (oldest == null || e.getValue().lastUsed < oldest.getValue().lastUsed) oldest = e;
+      }
+
+      checkpoints.remove(oldest.getKey());
+      usedBytes -= oldest.getValue().size;
+      evictions.incrementAndGet();
+    }
+  }
+
+  private static class Checkpoint {
+    final BigInteger value;
+    final long size;
+    long lastUsed;
+
+    Checkpoint(BigInteger value, long size, long lastUsed) {
+      this.value = value;
+      this.size = size;
+      this.lastUsed = lastUsed;
+    }
+  }
+}
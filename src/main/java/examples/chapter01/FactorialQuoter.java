@@ -1,7 +1,9 @@
 package examples.chapter01;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
 
 import static examples.chapter01.FactorialBig.factorial;
 
@@ -9,10 +11,18 @@ import static examples.chapter01.FactorialBig.factorial;
  * To build and run:
  *   $ javac -sourcepath src/main/java -d build/manual src/main/java/examples/chapter01/FactorialQuoter.java
  *   $ java -cp build/manual examples.chapter01.FactorialQuoter
+ *
+ * Or, to answer a whole file of numbers, one per line, with no prompts (see ChannelPipeline):
+ *   $ java -cp build/manual examples.chapter01.FactorialQuoter --batch < in.txt > out.txt
  */
 public class FactorialQuoter {
 
-  public static void main(String[] args) {
+  public static void main(String[] args) throws IOException {
+    if (args.length > 0 && args[0].equals("--batch")) {
+      ChannelPipeline.transformLines(ChannelPipeline.stdin(), ChannelPipeline.stdout(), FactorialQuoter::quote);
+      return;
+    }
+
     BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
 
     while (true) {
@@ -36,4 +46,42 @@ public class FactorialQuoter {
     }
   }
 
+  /**
+   * One line of batch mode, the same output as the interactive mode
+   */
+  static void quote(ByteBuffer buf, int off, int len, ChannelPipeline.ChannelWriter out) throws IOException {
+    int x;
+    try {
+      x = parseInt(buf, off, len);
+    } catch (NumberFormatException e) {
+      out.writeAscii("Invalid input");
+      return;
+    }
+
+    out.writeAscii(x >= 0 ? x + "! = " + factorial(x) : "Invalid input");
+  }
+
+  /**
+   * Integer.parseInt, straight from the bytes, without making a String first
+   */
+  private static int parseInt(ByteBuffer buf, int off, int len) {
+    if (len == 0) throw new NumberFormatException();
+
+    int i = off;
+    boolean negative = buf.get(i) == '-';
+    if (negative || buf.get(i) == '+') i++;
+    if (i == off + len) throw new NumberFormatException();
+
+    long value = 0;
+    for (; i < off + len; i++) {
+      int digit = buf.get(i) - '0';
+      if (digit < 0 || digit > 9) throw new NumberFormatException();
+      value = 10 * value + digit;
+      if (value > 1L << 31) throw new NumberFormatException();  // too big, even for -2^31
+    }
+
+    if (negative) value = -value;
+    if (value != (int) value) throw new NumberFormatException();
+    return (int) value;
+  }
 }
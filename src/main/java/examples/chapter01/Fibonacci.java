@@ -1,9 +1,22 @@
 package examples.chapter01;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
 
 public class Fibonacci {
+  // F(92) is the largest Fibonacci number that fits in a long
+  static final int MAX_LONG_TERM = 92;
+
+  // Products of two numbers below this can't overflow a long
+  private static final long SAFE_MULTIPLY_LIMIT = 3037000499L;
+
   public static List<Integer> fibonacci(int x) {
     if (x < 0) throw new IllegalArgumentException("x must be >= 0");
 
@@ -23,4 +36,180 @@ public class Fibonacci {
 
     return fib;
   }
+
+  /**
+   * The same sequence fibonacci returns, but generated one term at a time as primitive longs, so nothing is boxed and
+   * nothing is allocated per term. A long can only hold the first 92 terms, so that's where it stops: after F(92),
+   * hasNext is false, rather than nextLong wrapping around to a negative number
+   *
+   * @return an iterator over F(1) through F(92)
+   */
+  public static PrimitiveIterator.OfLong iterator() {
+    return new PrimitiveIterator.OfLong() {
+      long n1 = 1, n2 = 0;  // F(-1) and F(0), so that the first sum is F(1)
+      int terms;
+
+      @Override
+      public boolean hasNext() {
+        return terms < MAX_LONG_TERM;
+      }
+
+      @Override
+      public long nextLong() {
+        if (!hasNext()) throw new NoSuchElementException("F(" + (MAX_LONG_TERM + 1) + ") doesn't fit in a long");
+
+        terms++;
+        long next = n1 + n2;
+        n1 = n2;
+        n2 = next;
+        return next;
+      }
+    };
+  }
+
+  /**
+   * @return iterator() as a stream of exactly 92 terms, use limit() to take fewer
+   */
+  public static LongStream stream() {
+    int characteristics = Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE;
+    return StreamSupport.longStream(Spliterators.spliterator(iterator(), MAX_LONG_TERM, characteristics), false);
+  }
+
+  /**
+   * Writes F(1) through F(len) into a buffer the caller already has, for when you want the whole sequence without
+   * allocating anything
+   *
+   * @param dest buffer to fill
+   * @param off where in dest to write F(1)
+   * @param len how many terms to write
+   * @throws ArithmeticException if len > 92, since the terms no longer fit in a long
+   */
+  public static void fill(long[] dest, int off, int len) {
+    if (off < 0 || len < 0 || len > dest.length - off)
+      throw new IllegalArgumentException("off=" + off + ", len=" + len + " out of range for length " + dest.length);
+    if (len > MAX_LONG_TERM) throw new ArithmeticException("long overflow; F(" + (MAX_LONG_TERM + 1) + ") is too big");
+
+    long n1 = 1, n2 = 0;
+    for (int i = off; i < off + len; i++) {
+      dest[i] = n1 + n2;
+      n1 = n2;
+      n2 = dest[i];
+    }
+  }
+
+  /**
+   * Computes the single Fibonacci number F(n), counting from F(0) = 0 and F(1) = 1 (so fibonacci(x) is F(1) through
+   * F(x)). Uses fast doubling, which gets from F(k) and F(k+1) to F(2k) and F(2k+1) directly:
+   *
+   *   F(2k)   = F(k) * (2*F(k+1) - F(k))
+   *   F(2k+1) = F(k)^2 + F(k+1)^2
+   *
+   * so it only takes O(log n) steps, one per bit of n.
+   *
+   * @param n which Fibonacci number to compute
+   * @return F(n)
+   */
+  public static long fibonacciTerm(int n) {
+    if (n < 0) throw new IllegalArgumentException("n must be >= 0, was " + n);
+    if (n > MAX_LONG_TERM)
+      throw new IllegalArgumentException("Overflow; n is too large, must be <= " + MAX_LONG_TERM + ", was " + n);
+
+    long a = 0, b = 1;  // F(k), F(k+1), where k is the bits of n we've seen so far
+
+    for (int bit = 31 - Integer.numberOfLeadingZeros(Math.max(n, 1)); bit >= 0; bit--) {
+      long c = a * (2 * b - a);  // F(2k)
+      long d = a * a + b * b;    // F(2k+1), only overflows on the very last step for n = 92, when we don't need it
+
+      if (((n >>> bit) & 1) == 0) {
+        a = c;
+        b = d;
+      } else {
+        a = d;
+        b = c + d;
+      }
+    }
+
+    return a;
+  }
+
+  /**
+   * Same as fibonacciTerm, but with no upper limit. Writes the doubling step as two squares and one product, since
+   * BigInteger squares faster than it multiplies (and uses Karatsuba and Toom-Cook for both once they get big)
+   *
+   * @param n which Fibonacci number to compute
+   * @return F(n)
+   */
+  public static BigInteger fibonacciTermBig(int n) {
+    if (n < 0) throw new IllegalArgumentException("n must be >= 0, was " + n);
+
+    BigInteger a = BigInteger.ZERO, b = BigInteger.ONE;
+
+    for (int bit = 31 - Integer.numberOfLeadingZeros(Math.max(n, 1)); bit >= 0; bit--) {
+      BigInteger c = a.multiply(b.shiftLeft(1).subtract(a));
+      BigInteger d = a.multiply(a).add(b.multiply(b));
+
+      if (((n >>> bit) & 1) == 0) {
+        a = c;
+        b = d;
+      } else {
+        a = d;
+        b = c.add(d);
+      }
+    }
+
+    return a;
+  }
+
+  /**
+   * Computes F(n) mod m, by fast doubling with every step reduced mod m, so it works for any long n
+   *
+   * @param n which Fibonacci number to compute
+   * @param m the modulus
+   * @return F(n) mod m
+   */
+  public static long fibonacciTermMod(long n, long m) {
+    if (n < 0) throw new IllegalArgumentException("n must be >= 0, was " + n);
+    if (m < 1) throw new IllegalArgumentException("m must be >= 1, was " + m);
+
+    long a = 0, b = 1 % m;
+
+    for (int bit = 63 - Long.numberOfLeadingZeros(Math.max(n, 1)); bit >= 0; bit--) {
+      long twoBMinusA = addMod(b, b >= a ? b - a : b - a + m, m);
+      long c = multiplyMod(a, twoBMinusA, m);
+      long d = addMod(multiplyMod(a, a, m), multiplyMod(b, b, m), m);
+
+      if (((n >>> bit) & 1) == 0) {
+        a = c;
+        b = d;
+      } else {
+        a = d;
+        b = addMod(c, d, m);
+      }
+    }
+
+    return a;
+  }
+
+  /**
+   * (x + y) mod m, for x, y < m, without overflowing even when m is close to Long.MAX_VALUE
+   */
+  static long addMod(long x, long y, long m) {
+    return x >= m - y ? x - (m - y) : x + y;
+  }
+
+  /**
+   * (x * y) mod m, for x, y < m. Multiplies directly when that can't overflow, otherwise falls back to shift-and-add
+   */
+  static long multiplyMod(long x, long y, long m) {
+    if (m <= SAFE_MULTIPLY_LIMIT) return x * y % m;
+
+    long out = 0;
+    while (y > 0) {
+      if ((y & 1) != 0) out = addMod(out, x, m);
+      x = addMod(x, x, m);
+      y >>>= 1;
+    }
+
+    return out;
+  }
 }
@@ -0,0 +1,67 @@
+package examples.chapter01;
+
+import exercises.chapter01.FibonacciThreeTerms;
+
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.function.LongSupplier;
+
+/**
+ * Compares the list and array versions of the Fibonacci sequences against the primitive generators, reporting
+ * throughput and bytes allocated per term, with Benchmarks. After warmup the generators should allocate 0 bytes per
+ * term (or close to it, escape analysis permitting).
+ *
+ * To build and run:
+ *   $ javac -sourcepath src/main/java -d build/manual src/main/java/examples/chapter01/FibonacciBenchmark.java
+ *   $ java -cp build/manual examples.chapter01.FibonacciBenchmark
+ */
+public class FibonacciBenchmark {
+
+  // Reused by the fill versions, so they allocate nothing
+  private static final long[] BUFFER = new long[Fibonacci.MAX_LONG_TERM];
+
+  public static void main(String[] args) throws Exception {
+    Benchmarks.rounds(() -> {
+      time("Fibonacci.fibonacci", 46, () -> {
+        long sum = 0;
+        List<Integer> fib = Fibonacci.fibonacci(46);
+        for (int x : fib) sum += x;
+        return sum;
+      });
+      time("Fibonacci.iterator", 92, () -> {
+        long sum = 0;
+        PrimitiveIterator.OfLong it = Fibonacci.iterator();
+        for (int i = 0; i < 92; i++) sum += it.nextLong();
+        return sum;
+      });
+      time("Fibonacci.stream", 92, () -> Fibonacci.stream().limit(92).sum());
+      time("Fibonacci.fill", 92, () -> {
+        Fibonacci.fill(BUFFER, 0, 92);
+        return BUFFER[91];
+      });
+
+      time("FibonacciThreeTerms.fibonacci", 37, () -> {
+        long sum = 0;
+        for (int x : FibonacciThreeTerms.fibonacci(37)) sum += x;
+        return sum;
+      });
+      time("FibonacciThreeTerms.iterator", 73, () -> {
+        long sum = 0;
+        PrimitiveIterator.OfLong it = FibonacciThreeTerms.iterator();
+        for (int i = 0; i < 73; i++) sum += it.nextLong();
+        return sum;
+      });
+      time("FibonacciThreeTerms.fill", 73, () -> {
+        FibonacciThreeTerms.fill(BUFFER, 0, 73);
+        return BUFFER[72];
+      });
+    });
+  }
+
+  /**
+   * Runs f over and over, each run producing termsPerRun terms
+   */
+  private static void time(String name, int termsPerRun, LongSupplier f) {
+    Benchmarks.time(name, 2_000_000, termsPerRun, "term", f);
+  }
+}
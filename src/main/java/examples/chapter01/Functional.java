@@ -1,54 +1,133 @@
 package examples.chapter01;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoublePredicate;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+import java.util.function.LongPredicate;
+import java.util.function.LongUnaryOperator;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+import java.util.stream.LongStream;
 
 /**
  * Contains methods you'd expect in a functional programming language
+ *
+ * firstIdx and lastIdx stop at the first match they find: firstIdx scans forwards from the start, and lastIdx scans
+ * backwards from the end. There are versions for int[], long[] and double[] that take primitive predicates, so nothing
+ * gets boxed. The List versions only use get(i) on RandomAccess lists, and walk anything else (like a LinkedList) with
+ * an iterator, so they're O(n) either way.
+ *
+ * foldLeft goes strictly left to right, one item at a time. reduce and scan are the parallel versions, for when the
+ * combining function is associative: they cut the input into blocks of grain items, and work on the blocks on the
+ * common ForkJoinPool. parallelFirstIdx and parallelLastIdx search blocks in parallel, and stop searching blocks that
+ * can't beat a match that's already been found.
+ *
+ * Seq and LongSeq are for chaining steps together (map, then filter, then fold, say) lazily, in one pass, without
+ * building a list after every step.
  */
 public class Functional {
 
+  // Blocks smaller than this cost more to hand to another thread than they take to do
+  public static final int DEFAULT_GRAIN = 1 << 13;
+
   /**
-   * Return the index of the last item in a list that satisfies a predicate.
+   * Return the index of the first item in a list that satisfies a predicate.
    *
    * @param xs the list to check
    * @param predicate the check to run on each item
    * @param <T> the type of items in the list
-   * @return the index of the last item in the list that satisfies the predicate
+   * @return the index of the first item in the list that satisfies the predicate, or -1 if none do
    */
-  public static <T> int firstIdx(List<T> xs, Function<T, Boolean> predicate) {
-    int minIdx = -1;
-
-    for(int i = 0; i < xs.size(); i++) {
-      if (predicate.apply(xs.get(i))) {
-        minIdx = i;
-        break;
+  public static <T> int firstIdx(List<T> xs, Predicate<? super T> predicate) {
+    if (xs instanceof RandomAccess) {
+      for (int i = 0; i < xs.size(); i++) {
+        if (predicate.test(xs.get(i))) return i;
       }
+      return -1;
     }
 
-    return minIdx;
+    Iterator<T> it = xs.iterator();
+    for (int i = 0; it.hasNext(); i++) {
+      if (predicate.test(it.next())) return i;
+    }
+    return -1;
   }
 
   /**
-   * Return the index of the last item in an array that satisfies a predicate.
+   * Return the index of the first item in an array that satisfies a predicate.
    *
    * @param xs the array to check
    * @param predicate the check to run on each item
    * @param <T> the type of items in the array
-   * @return the index of the last item in the array that satisfies the predicate
+   * @return the index of the first item in the array that satisfies the predicate, or -1 if none do
    */
-  public static <T> int firstIdx(T[] xs, Function<T, Boolean> predicate) {
-    int minIdx = -1;
+  public static <T> int firstIdx(T[] xs, Predicate<? super T> predicate) {
+    for (int i = 0; i < xs.length; i++) {
+      if (predicate.test(xs[i])) return i;
+    }
+    return -1;
+  }
 
-    for(int i = 0; i < xs.length; i++) {
-      if (predicate.apply(xs[i])) {
-        minIdx = i;
-        break;
-      }
+  /**
+   * Return the index of the first int in an array that satisfies a predicate.
+   *
+   * @param xs the array to check
+   * @param predicate the check to run on each int
+   * @return the index of the first int in the array that satisfies the predicate, or -1 if none do
+   */
+  public static int firstIdx(int[] xs, IntPredicate predicate) {
+    for (int i = 0; i < xs.length; i++) {
+      if (predicate.test(xs[i])) return i;
     }
+    return -1;
+  }
 
-    return minIdx;
+  /**
+   * Return the index of the first long in an array that satisfies a predicate.
+   *
+   * @param xs the array to check
+   * @param predicate the check to run on each long
+   * @return the index of the first long in the array that satisfies the predicate, or -1 if none do
+   */
+  public static int firstIdx(long[] xs, LongPredicate predicate) {
+    for (int i = 0; i < xs.length; i++) {
+      if (predicate.test(xs[i])) return i;
+    }
+    return -1;
+  }
+
+  /**
+   * Return the index of the first double in an array that satisfies a predicate.
+   *
+   * @param xs the array to check
+   * @param predicate the check to run on each double
+   * @return the index of the first double in the array that satisfies the predicate, or -1 if none do
+   */
+  public static int firstIdx(double[] xs, DoublePredicate predicate) {
+    for (int i = 0; i < xs.length; i++) {
+      if (predicate.test(xs[i])) return i;
+    }
+    return -1;
   }
 
   /**
@@ -57,16 +136,21 @@ public class Functional {
    * @param xs the list to check
    * @param predicate the check to run on each item
    * @param <T> the type of items in the list
-   * @return the index of the first item in the list that satisfies the predicate
+   * @return the index of the last item in the list that satisfies the predicate, or -1 if none do
    */
-  public static <T> int lastIdx(List<T> xs, Function<T, Boolean> predicate) {
-    int maxIdx = -1;
-
-    for(int i = 0; i < xs.size(); i++) {
-      if (predicate.apply(xs.get(i))) maxIdx = i;
+  public static <T> int lastIdx(List<T> xs, Predicate<? super T> predicate) {
+    if (xs instanceof RandomAccess) {
+      for (int i = xs.size() - 1; i >= 0; i--) {
+        if (predicate.test(xs.get(i))) return i;
+      }
+      return -1;
     }
 
-    return maxIdx;
+    ListIterator<T> it = xs.listIterator(xs.size());
+    while (it.hasPrevious()) {
+      if (predicate.test(it.previous())) return it.nextIndex();
+    }
+    return -1;
   }
 
   /**
@@ -75,16 +159,55 @@ public class Functional {
    * @param xs the array to check
    * @param predicate the check to run on each item
    * @param <T> the type of items in the array
-   * @return the index of the first item in the array that satisfies the predicate
+   * @return the index of the last item in the array that satisfies the predicate, or -1 if none do
+   */
+  public static <T> int lastIdx(T[] xs, Predicate<? super T> predicate) {
+    for (int i = xs.length - 1; i >= 0; i--) {
+      if (predicate.test(xs[i])) return i;
+    }
+    return -1;
+  }
+
+  /**
+   * Return the index of the last int in an array that satisfies a predicate.
+   *
+   * @param xs the array to check
+   * @param predicate the check to run on each int
+   * @return the index of the last int in the array that satisfies the predicate, or -1 if none do
    */
-  public static <T> int lastIdx(T[] xs, Function<T, Boolean> predicate) {
-    int maxIdx = -1;
+  public static int lastIdx(int[] xs, IntPredicate predicate) {
+    for (int i = xs.length - 1; i >= 0; i--) {
+      if (predicate.test(xs[i])) return i;
+    }
+    return -1;
+  }
 
-    for(int i = 0; i < xs.length; i++) {
-      if (predicate.apply(xs[i])) maxIdx = i;
+  /**
+   * Return the index of the last long in an array that satisfies a predicate.
+   *
+   * @param xs the array to check
+   * @param predicate the check to run on each long
+   * @return the index of the last long in the array that satisfies the predicate, or -1 if none do
+   */
+  public static int lastIdx(long[] xs, LongPredicate predicate) {
+    for (int i = xs.length - 1; i >= 0; i--) {
+      if (predicate.test(xs[i])) return i;
     }
+    return -1;
+  }
 
-    return maxIdx;
+  /**
+   * Return the index of the last double in an array that satisfies a predicate.
+   *
+   * @param xs the array to check
+   * @param predicate the check to run on each double
+   * @return the index of the last double in the array that satisfies the predicate, or -1 if none do
+   */
+  public static int lastIdx(double[] xs, DoublePredicate predicate) {
+    for (int i = xs.length - 1; i >= 0; i--) {
+      if (predicate.test(xs[i])) return i;
+    }
+    return -1;
   }
 
   /**
@@ -126,4 +249,1101 @@ public class Functional {
 
     return accum;
   }
+
+  /**
+   * Parallel reduce on a list. The list is cut into blocks of grain items, each block is folded on its own on the
+   * common ForkJoinPool, and then the blocks' results are combined, left to right. So, unlike foldLeft, combiner has
+   * to be associative, and identity has to be an identity for it (combiner.apply(identity, a) == a), or the answer
+   * will depend on where the blocks fall. Sums, products, max, min and string concatenation are all fine.
+   *
+   * @param as the list to reduce. Lists that aren't RandomAccess are copied into one first
+   * @param identity the result for an empty list, and the starting value for each block
+   * @param combiner the function to combine two items
+   * @param grain how many items to fold in one task, at least 1
+   * @param <A> the type of items in the list
+   * @return the reduced value
+   */
+  public static <A> A reduce(List<A> as, A identity, BinaryOperator<A> combiner, int grain) {
+    checkGrain(grain);
+    List<A> xs = as instanceof RandomAccess ? as : new ArrayList<>(as);
+    int n = xs.size();
+    Object[] partials = new Object[blocks(n, grain)];
+
+    forEachBlock(partials.length, b -> {
+      A accum = identity;
+      for (int i = b * grain, end = blockEnd(b, n, grain); i < end; i++) accum = combiner.apply(accum, xs.get(i));
+      partials[b] = accum;
+    });
+
+    A accum = identity;
+    for (Object partial : partials) {
+      @SuppressWarnings("unchecked") A a = (A) partial;
+      accum = combiner.apply(accum, a);
+    }
+
+    return accum;
+  }
+
+  /**
+   * Parallel reduce on a list, DEFAULT_GRAIN items per task. See reduce(List, A, BinaryOperator, int)
+   */
+  public static <A> A reduce(List<A> as, A identity, BinaryOperator<A> combiner) {
+    return reduce(as, identity, combiner, DEFAULT_GRAIN);
+  }
+
+  /**
+   * Parallel reduce on an array. See reduce(List, A, BinaryOperator, int)
+   */
+  public static <A> A reduce(A[] as, A identity, BinaryOperator<A> combiner, int grain) {
+    return reduce(Arrays.asList(as), identity, combiner, grain);
+  }
+
+  /**
+   * Parallel reduce on an array, DEFAULT_GRAIN items per task. See reduce(List, A, BinaryOperator, int)
+   */
+  public static <A> A reduce(A[] as, A identity, BinaryOperator<A> combiner) {
+    return reduce(as, identity, combiner, DEFAULT_GRAIN);
+  }
+
+  /**
+   * Parallel reduce on an array of longs, without boxing any of them. See reduce(List, A, BinaryOperator, int)
+   *
+   * @param as the array to reduce
+   * @param identity the result for an empty array, and the starting value for each block
+   * @param combiner the function to combine two longs, must be associative
+   * @param grain how many longs to fold in one task, at least 1
+   * @return the reduced value
+   */
+  public static long reduce(long[] as, long identity, LongBinaryOperator combiner, int grain) {
+    checkGrain(grain);
+    int n = as.length;
+    long[] partials = new long[blocks(n, grain)];
+
+    forEachBlock(partials.length, b -> {
+      long accum = identity;
+      for (int i = b * grain, end = blockEnd(b, n, grain); i < end; i++) accum = combiner.applyAsLong(accum, as[i]);
+      partials[b] = accum;
+    });
+
+    long accum = identity;
+    for (long partial : partials) accum = combiner.applyAsLong(accum, partial);
+    return accum;
+  }
+
+  public static long reduce(long[] as, long identity, LongBinaryOperator combiner) {
+    return reduce(as, identity, combiner, DEFAULT_GRAIN);
+  }
+
+  /**
+   * Parallel reduce on an array of doubles, without boxing any of them. See reduce(List, A, BinaryOperator, int).
+   * Floating point addition isn't quite associative, so a parallel sum can differ from a sequential one in the last
+   * few bits, and can differ between grain sizes
+   *
+   * @param as the array to reduce
+   * @param identity the result for an empty array, and the starting value for each block
+   * @param combiner the function to combine two doubles, must be associative
+   * @param grain how many doubles to fold in one task, at least 1
+   * @return the reduced value
+   */
+  public static double reduce(double[] as, double identity, DoubleBinaryOperator combiner, int grain) {
+    checkGrain(grain);
+    int n = as.length;
+    double[] partials = new double[blocks(n, grain)];
+
+    forEachBlock(partials.length, b -> {
+      double accum = identity;
+      for (int i = b * grain, end = blockEnd(b, n, grain); i < end; i++) {
+        accum = combiner.applyAsDouble(accum, as[i]);
+      }
+      partials[b] = accum;
+    });
+
+    double accum = identity;
+    for (double partial : partials) accum = combiner.applyAsDouble(accum, partial);
+    return accum;
+  }
+
+  public static double reduce(double[] as, double identity, DoubleBinaryOperator combiner) {
+    return reduce(as, identity, combiner, DEFAULT_GRAIN);
+  }
+
+  /**
+   * Parallel inclusive prefix scan: out[i] is as[0] through as[i] combined, so a scan with + gives running totals. Done
+   * in three steps: every block of grain items is reduced in parallel, the blocks' totals are scanned on this thread,
+   * and then every block is scanned in parallel, starting from the total of the blocks before it. That's about twice
+   * the work of a sequential scan, so it takes a few threads to come out ahead. op has to be associative
+   *
+   * @param as the array to scan, left alone
+   * @param op the function to combine two items
+   * @param grain how many items to scan in one task, at least 1
+   * @param <A> the type of items in the array
+   * @return a new array, of the same type as as, with the running results
+   */
+  public static <A> A[] scan(A[] as, BinaryOperator<A> op, int grain) {
+    checkGrain(grain);
+    int n = as.length;
+    A[] out = Arrays.copyOf(as, n);
+    A[] totals = Arrays.copyOf(as, blocks(n, grain));
+
+    forEachBlock(totals.length, b -> {
+      A accum = as[b * grain];
+      for (int i = b * grain + 1, end = blockEnd(b, n, grain); i < end; i++) accum = op.apply(accum, as[i]);
+      totals[b] = accum;
+    });
+    for (int b = 1; b < totals.length; b++) totals[b] = op.apply(totals[b - 1], totals[b]);
+
+    forEachBlock(totals.length, b -> {
+      int start = b * grain;
+      A accum = b == 0 ? as[start] : op.apply(totals[b - 1], as[start]);
+      out[start] = accum;
+      for (int i = start + 1, end = blockEnd(b, n, grain); i < end; i++) out[i] = accum = op.apply(accum, as[i]);
+    });
+
+    return out;
+  }
+
+  public static <A> A[] scan(A[] as, BinaryOperator<A> op) {
+    return scan(as, op, DEFAULT_GRAIN);
+  }
+
+  /**
+   * Parallel inclusive prefix scan on an array of longs. See scan(A[], BinaryOperator, int)
+   */
+  public static long[] scan(long[] as, LongBinaryOperator op, int grain) {
+    checkGrain(grain);
+    int n = as.length;
+    long[] out = new long[n];
+    long[] totals = new long[blocks(n, grain)];
+
+    forEachBlock(totals.length, b -> {
+      long accum = as[b * grain];
+      for (int i = b * grain + 1, end = blockEnd(b, n, grain); i < end; i++) accum = op.applyAsLong(accum, as[i]);
+      totals[b] = accum;
+    });
+    for (int b = 1; b < totals.length; b++) totals[b] = op.applyAsLong(totals[b - 1], totals[b]);
+
+    forEachBlock(totals.length, b -> {
+      int start = b * grain;
+      long accum = b == 0 ? as[start] : op.applyAsLong(totals[b - 1], as[start]);
+      out[start] = accum;
+      for (int i = start + 1, end = blockEnd(b, n, grain); i < end; i++) out[i] = accum = op.applyAsLong(accum, as[i]);
+    });
+
+    return out;
+  }
+
+  public static long[] scan(long[] as, LongBinaryOperator op) {
+    return scan(as, op, DEFAULT_GRAIN);
+  }
+
+  /**
+   * Parallel inclusive prefix scan on an array of doubles. See scan(A[], BinaryOperator, int), and the note about
+   * floating point in reduce(double[], double, DoubleBinaryOperator, int)
+   */
+  public static double[] scan(double[] as, DoubleBinaryOperator op, int grain) {
+    checkGrain(grain);
+    int n = as.length;
+    double[] out = new double[n];
+    double[] totals = new double[blocks(n, grain)];
+
+    forEachBlock(totals.length, b -> {
+      double accum = as[b * grain];
+      for (int i = b * grain + 1, end = blockEnd(b, n, grain); i < end; i++) accum = op.applyAsDouble(accum, as[i]);
+      totals[b] = accum;
+    });
+    for (int b = 1; b < totals.length; b++) totals[b] = op.applyAsDouble(totals[b - 1], totals[b]);
+
+    forEachBlock(totals.length, b -> {
+      int start = b * grain;
+      double accum = b == 0 ? as[start] : op.applyAsDouble(totals[b - 1], as[start]);
+      out[start] = accum;
+      for (int i = start + 1, end = blockEnd(b, n, grain); i < end; i++) {
+        out[i] = accum = op.applyAsDouble(accum, as[i]);
+      }
+    });
+
+    return out;
+  }
+
+  public static double[] scan(double[] as, DoubleBinaryOperator op) {
+    return scan(as, op, DEFAULT_GRAIN);
+  }
+
+  /**
+   * Same as firstIdx, but searches blocks of the array in parallel on the common ForkJoinPool. Once a match is found,
+   * any block that starts after it is skipped, and any block that's part way through gives up when it gets past it.
+   * Blocks before the match keep going, since one of them could still have an earlier one. The predicate can be
+   * called on items after the first match, so it shouldn't have side effects
+   *
+   * @param xs the array to check
+   * @param predicate the check to run on each item
+   * @param <T> the type of items in the array
+   * @return the index of the first item in the array that satisfies the predicate, or -1 if none do
+   */
+  public static <T> int parallelFirstIdx(T[] xs, Predicate<? super T> predicate) {
+    return parallelFirstIdx(xs.length, i -> predicate.test(xs[i]), DEFAULT_GRAIN);
+  }
+
+  /**
+   * Same as parallelFirstIdx(T[], Predicate), for a list. Lists that aren't RandomAccess are searched sequentially,
+   * since splitting them up would mean walking them anyway
+   */
+  public static <T> int parallelFirstIdx(List<T> xs, Predicate<? super T> predicate) {
+    if (!(xs instanceof RandomAccess)) return firstIdx(xs, predicate);
+    return parallelFirstIdx(xs.size(), i -> predicate.test(xs.get(i)), DEFAULT_GRAIN);
+  }
+
+  public static int parallelFirstIdx(int[] xs, IntPredicate predicate) {
+    return parallelFirstIdx(xs.length, i -> predicate.test(xs[i]), DEFAULT_GRAIN);
+  }
+
+  public static int parallelFirstIdx(long[] xs, LongPredicate predicate) {
+    return parallelFirstIdx(xs.length, i -> predicate.test(xs[i]), DEFAULT_GRAIN);
+  }
+
+  public static int parallelFirstIdx(double[] xs, DoublePredicate predicate) {
+    return parallelFirstIdx(xs.length, i -> predicate.test(xs[i]), DEFAULT_GRAIN);
+  }
+
+  /**
+   * Same as lastIdx, but searches blocks of the array in parallel on the common ForkJoinPool. The mirror image of
+   * parallelFirstIdx(T[], Predicate): once a match is found, blocks that end before it are skipped
+   *
+   * @param xs the array to check
+   * @param predicate the check to run on each item
+   * @param <T> the type of items in the array
+   * @return the index of the last item in the array that satisfies the predicate, or -1 if none do
+   */
+  public static <T> int parallelLastIdx(T[] xs, Predicate<? super T> predicate) {
+    return parallelLastIdx(xs.length, i -> predicate.test(xs[i]), DEFAULT_GRAIN);
+  }
+
+  /**
+   * Same as parallelLastIdx(T[], Predicate), for a list. Lists that aren't RandomAccess are searched sequentially
+   */
+  public static <T> int parallelLastIdx(List<T> xs, Predicate<? super T> predicate) {
+    if (!(xs instanceof RandomAccess)) return lastIdx(xs, predicate);
+    return parallelLastIdx(xs.size(), i -> predicate.test(xs.get(i)), DEFAULT_GRAIN);
+  }
+
+  public static int parallelLastIdx(int[] xs, IntPredicate predicate) {
+    return parallelLastIdx(xs.length, i -> predicate.test(xs[i]), DEFAULT_GRAIN);
+  }
+
+  public static int parallelLastIdx(long[] xs, LongPredicate predicate) {
+    return parallelLastIdx(xs.length, i -> predicate.test(xs[i]), DEFAULT_GRAIN);
+  }
+
+  public static int parallelLastIdx(double[] xs, DoublePredicate predicate) {
+    return parallelLastIdx(xs.length, i -> predicate.test(xs[i]), DEFAULT_GRAIN);
+  }
+
+  /**
+   * @param n how many items there are
+   * @param matchesAt whether the item at an index satisfies the predicate
+   * @param grain how many items to search in one task
+   * @return the first index in [0, n) that matches, or -1
+   */
+  static int parallelFirstIdx(int n, IntPredicate matchesAt, int grain) {
+    checkGrain(grain);
+    AtomicInteger best = new AtomicInteger(n);
+    invoke(new SearchTask(0, n, grain, matchesAt, best, true));
+    return best.get() == n ? -1 : best.get();
+  }
+
+  /**
+   * @param n how many items there are
+   * @param matchesAt whether the item at an index satisfies the predicate
+   * @param grain how many items to search in one task
+   * @return the last index in [0, n) that matches, or -1
+   */
+  static int parallelLastIdx(int n, IntPredicate matchesAt, int grain) {
+    checkGrain(grain);
+    AtomicInteger best = new AtomicInteger(-1);
+    invoke(new SearchTask(0, n, grain, matchesAt, best, false));
+    return best.get();
+  }
+
+  private static void checkGrain(int grain) {
+    if (grain < 1) throw new IllegalArgumentException("grain must be >= 1, was " + grain);
+  }
+
+  private static int blocks(int n, int grain) {
+    return (int) (((long) n + grain - 1) / grain);
+  }
+
+  /**
+   * The end of block b, which starts at b * grain. Written so it can't overflow, even for arrays near the maximum size
+   */
+  private static int blockEnd(int b, int n, int grain) {
+    int start = b * grain;
+    return start + Math.min(grain, n - start);
+  }
+
+  /**
+   * Runs body on every block number in [0, blocks), in parallel unless there's only one
+   */
+  private static void forEachBlock(int blocks, IntConsumer body) {
+    if (blocks == 1) {
+      body.accept(0);
+    } else if (blocks > 1) {
+      invoke(new BlockTask(0, blocks, body));
+    }
+  }
+
+  private static void invoke(ForkJoinTask<?> task) {
+    // Already on a pool thread (a reduce inside a parallel stream, say), so just run it here, without queueing
+    if (ForkJoinTask.inForkJoinPool()) task.invoke();
+    else ForkJoinPool.commonPool().invoke(task);
+  }
+
+  /**
+   * Runs body on blocks [lo, hi), by splitting the range in half until there's only one block left
+   */
+  private static class BlockTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final int lo, hi;
+    private final IntConsumer body;
+
+    BlockTask(int lo, int hi, IntConsumer body) {
+      this.lo = lo;
+      this.hi = hi;
+      this.body = body;
+    }
+
+    @Override
+    protected void compute() {
+      if (hi - lo == 1) {
+        body.accept(lo);
+        return;
+      }
+
+      int mid = (lo + hi) >>> 1;
+      invokeAll(new BlockTask(lo, mid, body), new BlockTask(mid, hi, body));
+    }
+  }
+
+  /**
+   * Searches [lo, hi) for the first (or last) match, keeping the best one found by any task in best. A task whose
+   * whole range is on the wrong side of best is cancelled before it does anything, and a leaf checks best every
+   * CHECK_INTERVAL items, so it can stop part way
+   */
+  private static class SearchTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private static final int CHECK_INTERVAL = 1 << 10;
+
+    private final int lo, hi, grain;
+    private final IntPredicate matchesAt;
+    private final AtomicInteger best;
+    private final boolean first;
+
+    SearchTask(int lo, int hi, int grain, IntPredicate matchesAt, AtomicInteger best, boolean first) {
+      this.lo = lo;
+      this.hi = hi;
+      this.grain = grain;
+      this.matchesAt = matchesAt;
+      this.best = best;
+      this.first = first;
+    }
+
+    @Override
+    protected void compute() {
+      if (cancelled(lo, hi)) return;
+
+      if (hi - lo <= grain) {
+        if (first) searchForwards();
+        else searchBackwards();
+        return;
+      }
+
+      // invokeAll runs its first task on this thread, so that's the half most likely to have the answer
+      int mid = lo + (hi - lo) / 2;
+      SearchTask low = new SearchTask(lo, mid, grain, matchesAt, best, first);
+      SearchTask high = new SearchTask(mid, hi, grain, matchesAt, best, first);
+      if (first) invokeAll(low, high);
+      else invokeAll(high, low);
+    }
+
+    /**
+     * Whether nothing in [from, to) could beat the best match so far
+     */
+    private boolean cancelled(int from, int to) {
+      return first ? from >= best.get() : to - 1 <= best.get();
+    }
+
+    private void searchForwards() {
+      for (int i = lo; i < hi; i++) {
+        if ((i - lo) % CHECK_INTERVAL == 0 && cancelled(i, hi)) return;
+        if (matchesAt.test(i)) {
+          best.accumulateAndGet(i, Math::min);
+          return;
+        }
+      }
+    }
+
+    private void searchBackwards() {
+      for (int i = hi - 1; i >= lo; i--) {
+        if ((hi - 1 - i) % CHECK_INTERVAL == 0 && cancelled(lo, i + 1)) return;
+        if (matchesAt.test(i)) {
+          best.accumulateAndGet(i, Math::max);
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * A lazy sequence. Nothing happens when map, filter, takeWhile or zip are called, they just wrap the sequence in
+   * another one. The work is done when the end result is asked for, by foldLeft, toList, forEach or iterating over
+   * it, and then every item goes through all the steps before the next one starts. So there are no lists in between
+   * the steps, and takeWhile stops the whole chain as soon as it sees an item it doesn't want.
+   *
+   * It can be run either way round. forEachWhile pushes items down the chain into a sink, which is a plain nested loop
+   * once the JIT has inlined the lambdas, so it's what foldLeft and toList use. iterator() pulls items through the
+   * chain one at a time, which is slower (every step has to remember where it got to), but it's what you need to stop
+   * and start, or to walk two sequences side by side.
+   *
+   * A Seq can be run as many times as you like, as long as whatever it was made from hasn't changed.
+   *
+   * @param <T> the type of items in the sequence
+   */
+  public abstract static class Seq<T> implements Iterable<T> {
+
+    /**
+     * Pushes items into sink, one at a time, until there aren't any more or sink returns false
+     *
+     * @param sink takes each item, returns whether it wants another one
+     * @return true if every item was pushed, false if sink stopped it early
+     */
+    public abstract boolean forEachWhile(Predicate<? super T> sink);
+
+    /**
+     * @return an iterator that pulls items through the whole chain one at a time
+     */
+    @Override
+    public abstract Iterator<T> iterator();
+
+    /**
+     * @param xs the items, not copied, so later changes show up
+     * @param <T> the type of items
+     * @return a sequence of the items in an array
+     */
+    @SafeVarargs
+    public static <T> Seq<T> of(T... xs) {
+      return new Seq<T>() {
+        @Override
+        public boolean forEachWhile(Predicate<? super T> sink) {
+          for (T x : xs) {
+            if (!sink.test(x)) return false;
+          }
+          return true;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+          return new Iterator<T>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+              return next < xs.length;
+            }
+
+            @Override
+            public T next() {
+              if (!hasNext()) throw new NoSuchElementException("no next element");
+              return xs[next++];
+            }
+          };
+        }
+      };
+    }
+
+    /**
+     * @param xs the items, not copied, so later changes show up
+     * @param <T> the type of items
+     * @return a sequence of the items in any Iterable, like a list
+     */
+    public static <T> Seq<T> of(Iterable<T> xs) {
+      return new Seq<T>() {
+        @Override
+        public boolean forEachWhile(Predicate<? super T> sink) {
+          for (T x : xs) {
+            if (!sink.test(x)) return false;
+          }
+          return true;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+          return xs.iterator();
+        }
+      };
+    }
+
+    /**
+     * @param f the function to run on each item
+     * @param <R> the type it returns
+     * @return a sequence of f applied to each item
+     */
+    public <R> Seq<R> map(Function<? super T, ? extends R> f) {
+      return new Seq<R>() {
+        @Override
+        public boolean forEachWhile(Predicate<? super R> sink) {
+          return Seq.this.forEachWhile(t -> sink.test(f.apply(t)));
+        }
+
+        @Override
+        public Iterator<R> iterator() {
+          Iterator<T> it = Seq.this.iterator();
+          return new Iterator<R>() {
+            @Override
+            public boolean hasNext() {
+              return it.hasNext();
+            }
+
+            @Override
+            public R next() {
+              return f.apply(it.next());
+            }
+          };
+        }
+      };
+    }
+
+    /**
+     * @param f the function to run on each item
+     * @return a LongSeq of f applied to each item, so anything after this doesn't box
+     */
+    public LongSeq mapToLong(ToLongFunction<? super T> f) {
+      return new LongSeq() {
+        @Override
+        public boolean forEachWhile(LongPredicate sink) {
+          return Seq.this.forEachWhile(t -> sink.test(f.applyAsLong(t)));
+        }
+
+        @Override
+        public PrimitiveIterator.OfLong iterator() {
+          Iterator<T> it = Seq.this.iterator();
+          return new PrimitiveIterator.OfLong() {
+            @Override
+            public boolean hasNext() {
+              return it.hasNext();
+            }
+
+            @Override
+            public long nextLong() {
+              return f.applyAsLong(it.next());
+            }
+          };
+        }
+      };
+    }
+
+    /**
+     * @param predicate the check to run on each item
+     * @return a sequence of just the items that satisfy the predicate
+     */
+    public Seq<T> filter(Predicate<? super T> predicate) {
+      return new Seq<T>() {
+        @Override
+        public boolean forEachWhile(Predicate<? super T> sink) {
+          return Seq.this.forEachWhile(t -> !predicate.test(t) || sink.test(t));
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+          return new LookaheadIterator<T>(Seq.this.iterator()) {
+            @Override
+            boolean keep(T t) {
+              return predicate.test(t);
+            }
+          };
+        }
+      };
+    }
+
+    /**
+     * @param predicate the check to run on each item
+     * @return a sequence of the items up to, but not including, the first one that doesn't satisfy the predicate.
+     *   Nothing after that is looked at, so this is how to stop an infinite sequence
+     */
+    public Seq<T> takeWhile(Predicate<? super T> predicate) {
+      return new Seq<T>() {
+        @Override
+        public boolean forEachWhile(Predicate<? super T> sink) {
+          // Either can stop it, but it only counts as stopping early if it was the sink
+          boolean[] sinkStopped = {false};
+          Seq.this.forEachWhile(t -> predicate.test(t) && !(sinkStopped[0] = !sink.test(t)));
+          return !sinkStopped[0];
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+          return new LookaheadIterator<T>(Seq.this.iterator()) {
+            @Override
+            boolean keep(T t) {
+              if (predicate.test(t)) return true;
+              finish();
+              return false;
+            }
+          };
+        }
+      };
+    }
+
+    /**
+     * Pairs up items from this sequence and another one, and combines each pair. Stops at the end of the shorter one
+     *
+     * @param other the sequence to pair up with, pulled through its iterator
+     * @param f the function to combine each pair
+     * @param <U> the type of items in other
+     * @param <R> the type f returns
+     * @return a sequence of f applied to each pair
+     */
+    public <U, R> Seq<R> zip(Seq<U> other, BiFunction<? super T, ? super U, ? extends R> f) {
+      return new Seq<R>() {
+        @Override
+        public boolean forEachWhile(Predicate<? super R> sink) {
+          Iterator<U> us = other.iterator();
+          boolean[] sinkStopped = {false};
+          Seq.this.forEachWhile(t -> us.hasNext() && !(sinkStopped[0] = !sink.test(f.apply(t, us.next()))));
+          return !sinkStopped[0];
+        }
+
+        @Override
+        public Iterator<R> iterator() {
+          Iterator<T> ts = Seq.this.iterator();
+          Iterator<U> us = other.iterator();
+          return new Iterator<R>() {
+            @Override
+            public boolean hasNext() {
+              return ts.hasNext() && us.hasNext();
+            }
+
+            @Override
+            public R next() {
+              if (!hasNext()) throw new NoSuchElementException();
+              return f.apply(ts.next(), us.next());
+            }
+          };
+        }
+      };
+    }
+
+    /**
+     * Same as Functional.foldLeft, in one pass through the whole chain
+     *
+     * @param zero a zero value for the first compaction
+     * @param f the function to combine two items
+     * @param <B> the return type, and the type of the zero value
+     * @return the folded value
+     */
+    public <B> B foldLeft(B zero, BiFunction<B, ? super T, B> f) {
+      Object[] accum = {zero};
+      forEachWhile(t -> {
+        @SuppressWarnings("unchecked") B b = (B) accum[0];
+        accum[0] = f.apply(b, t);
+        return true;
+      });
+
+      @SuppressWarnings("unchecked") B result = (B) accum[0];
+      return result;
+    }
+
+    @Override
+    public void forEach(Consumer<? super T> action) {
+      forEachWhile(t -> {
+        action.accept(t);
+        return true;
+      });
+    }
+
+    /**
+     * @return a new ArrayList of every item
+     */
+    public List<T> toList() {
+      List<T> out = new ArrayList<>();
+      forEach(out::add);
+      return out;
+    }
+  }
+
+  /**
+   * Seq for longs, so nothing gets boxed. Mostly the same methods, with primitive functions, plus ways to make a
+   * sequence of numbers (range and iterate) and to add them up. There's no IntSeq or DoubleSeq: ints fit in a LongSeq
+   * (mapToLong gets them there from a Seq), and doubles can have one if something needs it
+   */
+  public abstract static class LongSeq {
+
+    /**
+     * Pushes longs into sink, one at a time, until there aren't any more or sink returns false
+     *
+     * @param sink takes each long, returns whether it wants another one
+     * @return true if every long was pushed, false if sink stopped it early
+     */
+    public abstract boolean forEachWhile(LongPredicate sink);
+
+    /**
+     * @return an iterator that pulls longs through the whole chain one at a time
+     */
+    public abstract PrimitiveIterator.OfLong iterator();
+
+    /**
+     * @param xs the longs, not copied, so later changes show up
+     * @return a sequence of the longs in an array
+     */
+    public static LongSeq of(long... xs) {
+      return new LongSeq() {
+        @Override
+        public boolean forEachWhile(LongPredicate sink) {
+          for (long x : xs) {
+            if (!sink.test(x)) return false;
+          }
+          return true;
+        }
+
+        @Override
+        public PrimitiveIterator.OfLong iterator() {
+          return Arrays.stream(xs).iterator();
+        }
+      };
+    }
+
+    /**
+     * @param from the first long
+     * @param to one more than the last long
+     * @return from, from + 1, ..., to - 1
+     */
+    public static LongSeq range(long from, long to) {
+      return new LongSeq() {
+        @Override
+        public boolean forEachWhile(LongPredicate sink) {
+          for (long x = from; x < to; x++) {
+            if (!sink.test(x)) return false;
+          }
+          return true;
+        }
+
+        @Override
+        public PrimitiveIterator.OfLong iterator() {
+          return new PrimitiveIterator.OfLong() {
+            private long next = from;
+
+            @Override
+            public boolean hasNext() {
+              return next < to;
+            }
+
+            @Override
+            public long nextLong() {
+              if (next >= to) throw new NoSuchElementException();
+              return next++;
+            }
+          };
+        }
+      };
+    }
+
+    /**
+     * An infinite sequence, so it needs a takeWhile (or a sink that says stop) before anything is asked of it
+     *
+     * @param seed the first long
+     * @param f how to get from each long to the next
+     * @return seed, f(seed), f(f(seed)), ...
+     */
+    public static LongSeq iterate(long seed, LongUnaryOperator f) {
+      return new LongSeq() {
+        @Override
+        public boolean forEachWhile(LongPredicate sink) {
+          for (long x = seed; ; x = f.applyAsLong(x)) {
+            if (!sink.test(x)) return false;
+          }
+        }
+
+        @Override
+        public PrimitiveIterator.OfLong iterator() {
+          return new PrimitiveIterator.OfLong() {
+            private long next = seed;
+
+            @Override
+            public boolean hasNext() {
+              return true;
+            }
+
+            @Override
+            public long nextLong() {
+              long x = next;
+              next = f.applyAsLong(x);
+              return x;
+            }
+          };
+        }
+      };
+    }
+
+    /**
+     * @param f the function to run on each long
+     * @return a sequence of f applied to each long
+     */
+    public LongSeq map(LongUnaryOperator f) {
+      return new LongSeq() {
+        @Override
+        public boolean forEachWhile(LongPredicate sink) {
+          return LongSeq.this.forEachWhile(x -> sink.test(f.applyAsLong(x)));
+        }
+
+        @Override
+        public PrimitiveIterator.OfLong iterator() {
+          PrimitiveIterator.OfLong it = LongSeq.this.iterator();
+          return new PrimitiveIterator.OfLong() {
+            @Override
+            public boolean hasNext() {
+              return it.hasNext();
+            }
+
+            @Override
+            public long nextLong() {
+              return f.applyAsLong(it.nextLong());
+            }
+          };
+        }
+      };
+    }
+
+    /**
+     * @param f the function to run on each long
+     * @param <R> the type it returns
+     * @return a Seq of f applied to each long
+     */
+    public <R> Seq<R> mapToObj(LongFunction<? extends R> f) {
+      return new Seq<R>() {
+        @Override
+        public boolean forEachWhile(Predicate<? super R> sink) {
+          return LongSeq.this.forEachWhile(x -> sink.test(f.apply(x)));
+        }
+
+        @Override
+        public Iterator<R> iterator() {
+          PrimitiveIterator.OfLong it = LongSeq.this.iterator();
+          return new Iterator<R>() {
+            @Override
+            public boolean hasNext() {
+              return it.hasNext();
+            }
+
+            @Override
+            public R next() {
+              return f.apply(it.nextLong());
+            }
+          };
+        }
+      };
+    }
+
+    /**
+     * @param predicate the check to run on each long
+     * @return a sequence of just the longs that satisfy the predicate
+     */
+    public LongSeq filter(LongPredicate predicate) {
+      return new LongSeq() {
+        @Override
+        public boolean forEachWhile(LongPredicate sink) {
+          return LongSeq.this.forEachWhile(x -> !predicate.test(x) || sink.test(x));
+        }
+
+        @Override
+        public PrimitiveIterator.OfLong iterator() {
+          return new LongLookaheadIterator(LongSeq.this.iterator()) {
+            @Override
+            boolean keep(long x) {
+              return predicate.test(x);
+            }
+          };
+        }
+      };
+    }
+
+    /**
+     * @param predicate the check to run on each long
+     * @return a sequence of the longs up to, but not including, the first one that doesn't satisfy the predicate
+     */
+    public LongSeq takeWhile(LongPredicate predicate) {
+      return new LongSeq() {
+        @Override
+        public boolean forEachWhile(LongPredicate sink) {
+          boolean[] sinkStopped = {false};
+          LongSeq.this.forEachWhile(x -> predicate.test(x) && !(sinkStopped[0] = !sink.test(x)));
+          return !sinkStopped[0];
+        }
+
+        @Override
+        public PrimitiveIterator.OfLong iterator() {
+          return new LongLookaheadIterator(LongSeq.this.iterator()) {
+            @Override
+            boolean keep(long x) {
+              if (predicate.test(x)) return true;
+              finish();
+              return false;
+            }
+          };
+        }
+      };
+    }
+
+    /**
+     * Pairs up longs from this sequence and another one, and combines each pair. Stops at the end of the shorter one
+     *
+     * @param other the sequence to pair up with, pulled through its iterator
+     * @param f the function to combine each pair
+     * @return a sequence of f applied to each pair
+     */
+    public LongSeq zip(LongSeq other, LongBinaryOperator f) {
+      return new LongSeq() {
+        @Override
+        public boolean forEachWhile(LongPredicate sink) {
+          PrimitiveIterator.OfLong ys = other.iterator();
+          boolean[] sinkStopped = {false};
+          LongSeq.this.forEachWhile(x ->
+            ys.hasNext() && !(sinkStopped[0] = !sink.test(f.applyAsLong(x, ys.nextLong()))));
+          return !sinkStopped[0];
+        }
+
+        @Override
+        public PrimitiveIterator.OfLong iterator() {
+          PrimitiveIterator.OfLong xs = LongSeq.this.iterator();
+          PrimitiveIterator.OfLong ys = other.iterator();
+          return new PrimitiveIterator.OfLong() {
+            @Override
+            public boolean hasNext() {
+              return xs.hasNext() && ys.hasNext();
+            }
+
+            @Override
+            public long nextLong() {
+              if (!hasNext()) throw new NoSuchElementException();
+              return f.applyAsLong(xs.nextLong(), ys.nextLong());
+            }
+          };
+        }
+      };
+    }
+
+    /**
+     * @param zero a zero value for the first compaction
+     * @param f the function to combine two longs
+     * @return the folded value
+     */
+    public long foldLeft(long zero, LongBinaryOperator f) {
+      long[] accum = {zero};
+      forEachWhile(x -> {
+        accum[0] = f.applyAsLong(accum[0], x);
+        return true;
+      });
+      return accum[0];
+    }
+
+    public long sum() {
+      return foldLeft(0, Long::sum);
+    }
+
+    public void forEach(LongConsumer action) {
+      forEachWhile(x -> {
+        action.accept(x);
+        return true;
+      });
+    }
+
+    /**
+     * @return a new array of every long
+     */
+    public long[] toArray() {
+      LongStream.Builder builder = LongStream.builder();
+      forEach(builder);
+      return builder.build().toArray();
+    }
+  }
+
+  /**
+   * An iterator over the items of another one that keep() says yes to. Finds the next one in hasNext, so it can answer
+   */
+  private abstract static class LookaheadIterator<T> implements Iterator<T> {
+    private final Iterator<T> it;
+    private T next;
+    private boolean ready, finished;
+
+    LookaheadIterator(Iterator<T> it) {
+      this.it = it;
+    }
+
+    abstract boolean keep(T t);
+
+    /**
+     * Stops at the item keep() is looking at
+     */
+    void finish() {
+      finished = true;
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (!ready && !finished && it.hasNext()) {
+        T t = it.next();
+        if (keep(t)) {
+          next = t;
+          ready = true;
+        }
+      }
+      return ready;
+    }
+
+    @Override
+    public T next() {
+      if (!hasNext()) throw new NoSuchElementException();
+      T t = next;
+      next = null;
+      ready = false;
+      return t;
+    }
+  }
+
+  /**
+   * LookaheadIterator for longs
+   */
+  private abstract static class LongLookaheadIterator implements PrimitiveIterator.OfLong {
+    private final PrimitiveIterator.OfLong it;
+    private long next;
+    private boolean ready, finished;
+
+    LongLookaheadIterator(PrimitiveIterator.OfLong it) {
+      this.it = it;
+    }
+
+    abstract boolean keep(long x);
+
+    void finish() {
+      finished = true;
+    }
+
+    @Override
+    public boolean hasNext() {
+      while (!ready && !finished && it.hasNext()) {
+        long x = it.nextLong();
+        if (keep(x)) {
+          next = x;
+          ready = true;
+        }
+      }
+      return ready;
+    }
+
+    @Override
+    public long nextLong() {
+      if (!hasNext()) throw new NoSuchElementException();
+      ready = false;
+      return next;
+    }
+  }
 }
@@ -0,0 +1,175 @@
+package examples.chapter01;
+
+import java.util.stream.IntStream;
+
+/**
+ * Factorials and binomial coefficients mod a prime p, for when you only need n! mod p or C(n, k) mod p and never the
+ * giant number itself. Precomputes n! mod p and its inverse for every n in the table, so that
+ *
+ *   C(n, k) = n! / (k! * (n - k)!) mod p
+ *
+ * is just three lookups and two multiplies. For n >= p, C(n, k) is computed with Lucas' theorem, which needs the table
+ * to cover 0 .. p - 1.
+ *
+ * The tables are ints, since every entry is < p < 2^31, which halves their memory compared to longs. They're built in
+ * parallel, a chunk per task, which matters once n gets into the tens of millions.
+ */
+public class ModularFactorial {
+
+  // Entries per parallel task when building the tables
+  private static final int CHUNK_SIZE = 1 << 16;
+
+  private final int p;
+  private final int[] fact;     // fact[i] = i! mod p
+  private final int[] invFact;  // invFact[i] = (i!)^-1 mod p
+
+  /**
+   * @param n the tables will cover 0! through n!, or through (p - 1)! if that's smaller (n! = 0 mod p for n >= p)
+   * @param p the modulus, which must be prime so that every i! < p has an inverse
+   */
+  public ModularFactorial(int n, int p) {
+    if (n < 0) throw new IllegalArgumentException("n must be non-negative, was " + n);
+    if (!Primes.isPrime(p)) throw new IllegalArgumentException("p must be prime, was " + p);
+
+    this.p = p;
+
+    int size = Math.min(n, p - 1) + 1;
+    fact = new int[size];
+    invFact = new int[size];
+
+    buildFactorials();
+    buildInverseFactorials();
+  }
+
+  public int modulus() {
+    return p;
+  }
+
+  /**
+   * @param n number to compute the factorial of
+   * @return n! mod p
+   */
+  public long factorial(long n) {
+    if (n < 0) throw new IllegalArgumentException("n must be non-negative, was " + n);
+    if (n >= p) return 0;  // p is one of the factors
+
+    return fact[checkInTable(n)];
+  }
+
+  /**
+   * @param n number to compute the inverse factorial of, must be < p
+   * @return (n!)^-1 mod p
+   */
+  public long inverseFactorial(long n) {
+    if (n < 0) throw new IllegalArgumentException("n must be non-negative, was " + n);
+    if (n >= p) throw new IllegalArgumentException(n + "! = 0 mod " + p + ", so it has no inverse");
+
+    return invFact[checkInTable(n)];
+  }
+
+  /**
+   * @param n size of the set to choose from
+   * @param k number of items to choose
+   * @return C(n, k) mod p, or 0 if k < 0 or k > n
+   */
+  public long binomial(long n, long k) {
+    if (n < 0) throw new IllegalArgumentException("n must be non-negative, was " + n);
+    if (k < 0 || k > n) return 0;
+    if (n < p) return smallBinomial((int) n, (int) k);
+
+    if (fact.length < p) {
+      throw new IllegalArgumentException(
+        "n >= p needs the table to cover up to p - 1 = " + (p - 1) + ", it only goes to " + (fact.length - 1));
+    }
+
+    // Lucas' theorem: C(n, k) is the product of C(n_i, k_i) over the base p digits of n and k
+    long out = 1;
+    while (n > 0 && out != 0) {
+      out = out * smallBinomial((int) (n % p), (int) (k % p)) % p;
+      n /= p;
+      k /= p;
+    }
+
+    return out;
+  }
+
+  private long smallBinomial(int n, int k) {
+    if (k > n) return 0;
+
+    checkInTable(n);
+    return (long) fact[n] * invFact[k] % p * invFact[n - k] % p;
+  }
+
+  private int checkInTable(long n) {
+    if (n >= fact.length) throw new IllegalArgumentException(n + " is past the end of the table, " + (fact.length - 1));
+    return (int) n;
+  }
+
+  /**
+   * A prefix product, in three passes: each chunk's product in parallel, a (short) sequential scan over the chunks to
+   * get each chunk's starting value, then each chunk's entries in parallel from its starting value
+   */
+  private void buildFactorials() {
+    int chunks = (fact.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    long[] chunkProducts = new long[chunks];
+
+    IntStream.range(0, chunks).parallel().forEach(c -> {
+      long acc = 1;
+      for (int i = Math.max(1, c * CHUNK_SIZE); i < chunkEnd(c); i++) {
+        acc = acc * i % p;
+      }
+      chunkProducts[c] = acc;
+    });
+
+    long[] chunkStarts = new long[chunks];
+    long acc = 1;
+    for (int c = 0; c < chunks; c++) {
+      chunkStarts[c] = acc;
+      acc = acc * chunkProducts[c] % p;
+    }
+
+    IntStream.range(0, chunks).parallel().forEach(c -> {
+      long value = chunkStarts[c];
+      for (int i = c * CHUNK_SIZE; i < chunkEnd(c); i++) {
+        if (i > 0) value = value * i % p;
+        fact[i] = (int) value;
+      }
+    });
+  }
+
+  /**
+   * Each chunk inverts its last factorial with Fermat's little theorem, x^-1 = x^(p-2) mod p, then walks down the
+   * chunk using (i-1)!^-1 = i!^-1 * i
+   */
+  private void buildInverseFactorials() {
+    int chunks = (fact.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+
+    IntStream.range(0, chunks).parallel().forEach(c -> {
+      int last = chunkEnd(c) - 1;
+      long value = pow(fact[last], p - 2);
+      invFact[last] = (int) value;
+
+      for (int i = last; i > c * CHUNK_SIZE; i--) {
+        value = value * i % p;
+        invFact[i - 1] = (int) value;
+      }
+    });
+  }
+
+  private int chunkEnd(int c) {
+    return (int) Math.min(fact.length, (long) (c + 1) * CHUNK_SIZE);
+  }
+
+  private long pow(long base, long e) {
+    long result = 1;
+    base %= p;
+
+    while (e > 0) {
+      if ((e & 1) != 0) result = result * base % p;
+      base = base * base % p;
+      e >>= 1;
+    }
+
+    return result;
+  }
+}
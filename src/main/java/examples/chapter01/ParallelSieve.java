@@ -0,0 +1,251 @@
+package examples.chapter01;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static examples.chapter01.SegmentedSieve.SEGMENT_BITS;
+import static examples.chapter01.SegmentedSieve.basePrimes;
+import static examples.chapter01.SegmentedSieve.countClearBits;
+import static examples.chapter01.SegmentedSieve.isqrt;
+import static examples.chapter01.SegmentedSieve.nextClearBit;
+import static examples.chapter01.SegmentedSieve.sieveSegment;
+
+/**
+ * A segmented sieve that answers questions about whole ranges of numbers, splitting [lo, hi] into disjoint segments
+ * and sieving them on every thread of a ForkJoinPool. All segments share one table of base primes (the primes up to
+ * sqrt(hi)), which is computed once and kept around for later queries.
+ *
+ * Works with long bounds, up to MAX_BOUND, which is as far as we can go with the base primes in an int[].
+ */
+public class ParallelSieve {
+
+  // The base primes are ints, so sqrt(hi) has to fit in one
+  public static final long MAX_BOUND = (long) Integer.MAX_VALUE * Integer.MAX_VALUE;
+
+  // Segments per leaf task. A few at a time, so each task can reuse its bitset
+  private static final int LEAF_SEGMENTS = 4;
+
+  // Segments counted per round by nthPrime, bounds how much we keep around while searching
+  private static final int NTH_PRIME_BLOCK = 1024;
+
+  private final ForkJoinPool pool;
+
+  private volatile int[] basePrimes = new int[0];
+  private volatile long basePrimesLimit = 0;
+
+  public ParallelSieve() {
+    this(ForkJoinPool.commonPool());
+  }
+
+  public ParallelSieve(ForkJoinPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * Counts the primes in [lo, hi]
+   *
+   * @param lo lower bound, inclusive
+   * @param hi upper bound, inclusive
+   * @return the number of primes p with lo <= p <= hi
+   */
+  public long countPrimes(long lo, long hi) {
+    Range r = new Range(lo, hi);
+    if (r.nOdds == 0) return r.includesTwo ? 1 : 0;
+
+    int[] primes = basePrimesUpTo(isqrt(r.oddHi));
+    long count = pool.invoke(new CountTask(r, primes, 0, r.segments(), null, 0));
+
+    return count + (r.includesTwo ? 1 : 0);
+  }
+
+  /**
+   * The primes in [lo, hi], in ascending order. Segments are only sieved as the stream gets to them, and the stream
+   * can be made parallel, in which case segments get sieved concurrently
+   *
+   * @param lo lower bound, inclusive
+   * @param hi upper bound, inclusive
+   * @return the primes p with lo <= p <= hi
+   */
+  public LongStream primesIn(long lo, long hi) {
+    Range r = new Range(lo, hi);
+    int[] primes = r.nOdds == 0 ? new int[0] : basePrimesUpTo(isqrt(r.oddHi));
+
+    LongStream odd = LongStream.range(0, r.segments()).flatMap(s -> LongStream.of(segmentPrimes(r, s, primes)));
+
+    return r.includesTwo ? LongStream.concat(LongStream.of(2), odd) : odd;
+  }
+
+  /**
+   * The primes in [lo, hi], in ascending order, as ints
+   *
+   * @param lo lower bound, inclusive
+   * @param hi upper bound, inclusive
+   * @return the primes p with lo <= p <= hi
+   */
+  public IntStream primesIn(int lo, int hi) {
+    return primesIn((long) lo, (long) hi).mapToInt(p -> (int) p);
+  }
+
+  /**
+   * Finds the nth prime, counting from nthPrime(1) == 2. Counts a block of segments at a time in parallel, until the
+   * running count passes n, then sieves just the segment the answer is in
+   *
+   * @param n which prime to find
+   * @return the nth prime
+   */
+  public long nthPrime(long n) {
+    if (n < 1) throw new IllegalArgumentException("n must be >= 1, was " + n);
+    if (n == 1) return 2;
+
+    Range r = new Range(0, Math.min(MAX_BOUND, upperBoundOfNthPrime(n)));
+    int[] primes = basePrimesUpTo(isqrt(r.oddHi));
+    long remaining = n - 1;  // the odd primes still to count, 2 is already accounted for
+    long segments = r.segments();
+
+    for (long from = 0; from < segments; from += NTH_PRIME_BLOCK) {
+      long to = Math.min(segments, from + NTH_PRIME_BLOCK);
+      int[] counts = new int[(int) (to - from)];
+      pool.invoke(new CountTask(r, primes, from, to, counts, from));
+
+      for (int i = 0; i < counts.length; i++) {
+        if (counts[i] < remaining) {
+          remaining -= counts[i];
+          continue;
+        }
+
+        long[] inSegment = segmentPrimes(r, from + i, primes);
+        return inSegment[(int) remaining - 1];
+      }
+    }
+
+    throw new IllegalArgumentException("the " + n + "th prime is larger than " + MAX_BOUND);
+  }
+
+  /**
+   * The shared base prime table, grown if it doesn't reach limit yet. Any table that goes past limit works just as well
+   */
+  private int[] basePrimesUpTo(long limit) {
+    if (basePrimesLimit >= limit) return basePrimes;
+
+    synchronized (this) {
+      if (basePrimesLimit < limit) {
+        basePrimes = basePrimes((int) limit);
+        basePrimesLimit = limit;
+      }
+      return basePrimes;
+    }
+  }
+
+  /**
+   * Sieves segment s of a range, and returns the primes in it
+   */
+  private static long[] segmentPrimes(Range r, long s, int[] primes) {
+    long[] bits = new long[SEGMENT_BITS / 64];
+    long lo = r.segmentStart(s);
+    int nBits = r.segmentBits(s);
+
+    sieveSegment(lo, nBits, bits, primes);
+
+    long[] out = new long[countClearBits(bits, nBits)];
+    int count = 0;
+    for (int i = nextClearBit(bits, 0, nBits); i >= 0; i = nextClearBit(bits, i + 1, nBits)) {
+      out[count++] = lo + 2L * i;
+    }
+
+    return out;
+  }
+
+  /**
+   * An upper bound on the nth prime: n(ln n + ln ln n) for n >= 6 (Rosser's theorem)
+   */
+  private static long upperBoundOfNthPrime(long n) {
+    if (n < 6) return 13;
+    double ln = Math.log(n);
+    return (long) Math.ceil(n * (ln + Math.log(ln)));
+  }
+
+  /**
+   * The odd numbers in [lo, hi], from oddLo to oddHi, cut up into segments of SEGMENT_BITS odd numbers each
+   */
+  private static class Range {
+    final boolean includesTwo;
+    final long oddLo;
+    final long oddHi;
+    final long nOdds;
+
+    Range(long lo, long hi) {
+      if (hi > MAX_BOUND) throw new IllegalArgumentException("hi must be <= " + MAX_BOUND + ", was " + hi);
+
+      includesTwo = lo <= 2 && hi >= 2;
+      oddLo = Math.max(3, lo | 1);
+      oddHi = (hi & 1) == 0 ? hi - 1 : hi;
+      nOdds = oddHi >= oddLo ? (oddHi - oddLo) / 2 + 1 : 0;
+    }
+
+    long segments() {
+      return (nOdds + SEGMENT_BITS - 1) / SEGMENT_BITS;
+    }
+
+    long segmentStart(long s) {
+      return oddLo + 2 * s * SEGMENT_BITS;
+    }
+
+    int segmentBits(long s) {
+      return (int) Math.min(SEGMENT_BITS, nOdds - s * SEGMENT_BITS);
+    }
+  }
+
+  /**
+   * Counts the primes in segments [from, to) of a range, splitting in half until there are only a few segments left.
+   * If counts is given, also records the count for each segment s in counts[s - countsBase]
+   */
+  private static class CountTask extends RecursiveTask<Long> {
+    private static final long serialVersionUID = 1L;
+
+    private final Range r;
+    private final int[] primes;
+    private final long from, to;
+    private final int[] counts;
+    private final long countsBase;
+
+    CountTask(Range r, int[] primes, long from, long to, int[] counts, long countsBase) {
+      this.r = r;
+      this.primes = primes;
+      this.from = from;
+      this.to = to;
+      this.counts = counts;
+      this.countsBase = countsBase;
+    }
+
+    @Override
+    protected Long compute() {
+      if (to - from <= LEAF_SEGMENTS) return countDirectly();
+
+      long mid = (from + to) >>> 1;
+      CountTask left = new CountTask(r, primes, from, mid, counts, countsBase);
+      CountTask right = new CountTask(r, primes, mid, to, counts, countsBase);
+
+      left.fork();
+      long rightCount = right.compute();
+      return left.join() + rightCount;
+    }
+
+    private long countDirectly() {
+      long[] bits = new long[SEGMENT_BITS / 64];
+      long total = 0;
+
+      for (long s = from; s < to; s++) {
+        int nBits = r.segmentBits(s);
+        sieveSegment(r.segmentStart(s), nBits, bits, primes);
+
+        int count = countClearBits(bits, nBits);
+        if (counts != null) counts[(int) (s - countsBase)] = count;
+        total += count;
+      }
+
+      return total;
+    }
+  }
+}
@@ -0,0 +1,33 @@
+package examples.chapter01;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures ParallelSieve.countPrimes throughput with 1, 2, 4, ... threads, up to the number of cores. The rounds and
+ * timing come from Benchmarks, and the checksum is the number of primes found.
+ *
+ * To build and run:
+ *   $ javac -sourcepath src/main/java -d build/manual src/main/java/examples/chapter01/ParallelSieveBenchmark.java
+ *   $ java -cp build/manual examples.chapter01.ParallelSieveBenchmark [hi]
+ */
+public class ParallelSieveBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    long hi = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000_000L;
+    int cores = Runtime.getRuntime().availableProcessors();
+
+    System.out.println("countPrimes(0, " + hi + "), " + cores + " cores available");
+
+    for (int threads = 1; ; threads = Math.min(cores, threads * 2)) {
+      ForkJoinPool pool = new ForkJoinPool(threads);
+      ParallelSieve sieve = new ParallelSieve(pool);
+      String name = "threads=" + threads;
+
+      // The first round also builds the base primes. The work is on the pool's threads, so no allocation count
+      Benchmarks.rounds(() -> Benchmarks.timeThroughput(name, 1, hi, "number", () -> sieve.countPrimes(0, hi)));
+
+      pool.shutdown();
+      if (threads == cores) break;
+    }
+  }
+}
@@ -0,0 +1,80 @@
+package examples.chapter01;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.function.LongSupplier;
+
+/**
+ * Measures one pipeline (keep the even numbers, square them, add them up until one is too big) written a few ways, in
+ * millions of input numbers per second: a hand-written loop, one ArrayList after each step, Functional.Seq over boxed
+ * Longs, and Functional.LongSeq pushed and pulled. The rounds and timing come from Benchmarks, whose bytes per number
+ * show what boxing costs
+ *
+ * To build and run:
+ *   $ javac -sourcepath src/main/java -d build/manual src/main/java/examples/chapter01/PipelineBenchmark.java
+ *   $ java -cp build/manual examples.chapter01.PipelineBenchmark
+ */
+public class PipelineBenchmark {
+
+  private static final int SIZE = 1 << 22;
+
+  // Bigger than any square, so takeWhile never stops early and every version does the whole array
+  private static final long LIMIT = Long.MAX_VALUE;
+
+  public static void main(String[] args) throws Exception {
+    long[] xs = new Random(1).longs(SIZE, 0, 1 << 20).toArray();
+    List<Long> boxed = new ArrayList<>(SIZE);
+    for (long x : xs) boxed.add(x);
+
+    Benchmarks.rounds(() -> {
+      time("hand-written loop", () -> {
+        long sum = 0;
+        for (long x : xs) {
+          if (x % 2 != 0) continue;
+          long square = x * x;
+          if (square >= LIMIT) break;
+          sum += square;
+        }
+        return sum;
+      });
+      time("ArrayList per step", () -> {
+        List<Long> evens = new ArrayList<>();
+        for (long x : boxed) if (x % 2 == 0) evens.add(x);
+        List<Long> squares = new ArrayList<>();
+        for (long x : evens) squares.add(x * x);
+        List<Long> small = new ArrayList<>();
+        for (long x : squares) {
+          if (x >= LIMIT) break;
+          small.add(x);
+        }
+        return Functional.foldLeft(small, 0L, Long::sum);
+      });
+      time("Seq<Long>", () -> Functional.Seq.of(boxed)
+        .filter(x -> x % 2 == 0)
+        .map(x -> x * x)
+        .takeWhile(x -> x < LIMIT)
+        .foldLeft(0L, Long::sum));
+      time("LongSeq push", () -> Functional.LongSeq.of(xs)
+        .filter(x -> x % 2 == 0)
+        .map(x -> x * x)
+        .takeWhile(x -> x < LIMIT)
+        .sum());
+      time("LongSeq pull", () -> {
+        PrimitiveIterator.OfLong it = Functional.LongSeq.of(xs)
+          .filter(x -> x % 2 == 0)
+          .map(x -> x * x)
+          .takeWhile(x -> x < LIMIT)
+          .iterator();
+        long sum = 0;
+        while (it.hasNext()) sum += it.nextLong();
+        return sum;
+      });
+    });
+  }
+
+  private static void time(String name, LongSupplier pipeline) {
+    Benchmarks.time(name, 10, SIZE, "number", pipeline);
+  }
+}
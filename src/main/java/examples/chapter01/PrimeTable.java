@@ -0,0 +1,247 @@
+package examples.chapter01;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+
+import static examples.chapter01.SegmentedSieve.SEGMENT_BITS;
+import static examples.chapter01.SegmentedSieve.basePrimes;
+import static examples.chapter01.SegmentedSieve.isqrt;
+import static examples.chapter01.SegmentedSieve.sieveSegment;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * A sieved table of primes that lives in a file, and is read straight out of a memory mapping. The first process to
+ * open a file pays for the sieving, every later one just maps it, so queries are answered off-heap with nothing to
+ * parse. If a query goes past what the file covers, the table sieves the missing part and appends it to the file.
+ *
+ * The file is a 16 byte header (a magic number, then the number of words) followed by the same odd-only bitset that
+ * SegmentedSieve uses: bit i is the number 2*i + 1, and a set bit means composite. The table always covers whole
+ * words, so a table of w words knows about every number up to 128*w - 1.
+ */
+public class PrimeTable implements Closeable {
+
+  // As far as one mapping can go: 2^27 words is a 1GB bitset
+  public static final long MAX_BOUND = (1L << 34) - 1;
+
+  private static final long MAGIC = 0x5052494d45544231L;  // "PRIMETB1"
+  private static final int HEADER_BYTES = 16;
+
+  private final FileChannel channel;
+
+  private volatile MappedByteBuffer map;
+  private volatile long words;
+
+  private PrimeTable(FileChannel channel) {
+    this.channel = channel;
+  }
+
+  /**
+   * Opens (or creates) the table in a file, making sure it covers everything up to bound
+   *
+   * @param file where the table lives
+   * @param bound the table will know about every number up to this one
+   * @return the table
+   * @throws IOException if the file can't be read or written, or isn't a prime table
+   */
+  public static PrimeTable open(Path file, long bound) throws IOException {
+    FileChannel channel = FileChannel.open(file, CREATE, READ, WRITE);
+    PrimeTable table = new PrimeTable(channel);
+
+    try {
+      // Shared, so it waits for a grow in another process to finish, but doesn't hold up other readers
+      FileLock lock = channel.lock(0, Long.MAX_VALUE, true);
+      try {
+        long words = table.readWords();
+        if (words > 0) table.remap(words);
+      } finally {
+        lock.release();
+      }
+
+      table.ensure(bound);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+
+    return table;
+  }
+
+  /**
+   * @return the largest number the table currently knows about, without growing
+   */
+  public long bound() {
+    return 128 * words - 1;
+  }
+
+  /**
+   * @param n number to check
+   * @return true if n is prime
+   */
+  public boolean isPrime(long n) {
+    if (n < 3) return n == 2;
+    if ((n & 1) == 0) return false;
+
+    ensure(n);
+    long i = n >>> 1;
+    return (map.getLong(HEADER_BYTES + 8 * (int) (i >>> 6)) & (1L << i)) == 0;
+  }
+
+  /**
+   * Computes the largest prime up to or equal to some number
+   *
+   * @param max the computed prime will be this large or smaller
+   * @return the computed prime
+   */
+  public long largestPrimeUpTo(long max) {
+    if (max < 2) throw new IllegalArgumentException("max must be >= 2");
+    if (max < 3) return 2;
+
+    ensure(max);
+    MappedByteBuffer m = map;
+
+    long i = ((max & 1) == 0 ? max - 1 : max) >>> 1;
+    int w = (int) (i >>> 6);
+    long word = ~m.getLong(HEADER_BYTES + 8 * w) & (-1L >>> (63 - (i & 63)));
+
+    while (true) {
+      // Always stops at 3 at the latest, since max >= 3
+      if (word != 0) return 2 * (((long) w << 6) + 63 - Long.numberOfLeadingZeros(word)) + 1;
+      word = ~m.getLong(HEADER_BYTES + 8 * --w);
+    }
+  }
+
+  /**
+   * Finds the smallest prime greater than some number, growing the table as needed to find it
+   *
+   * @param n the computed prime will be larger than this
+   * @return the computed prime
+   */
+  public long nextPrime(long n) {
+    if (n < 2) return 2;
+    if (n >= MAX_BOUND) throw new IllegalArgumentException("n must be < " + MAX_BOUND + ", was " + n);
+
+    long i = (n + 1) >>> 1;  // the first odd number > n
+    ensure(2 * i + 1);
+
+    while (true) {
+      long end = words;  // read before map, so the map is at least this big
+      MappedByteBuffer m = map;
+      long w = i >>> 6;
+      long word = ~m.getLong(HEADER_BYTES + 8 * (int) w) & (-1L << i);
+
+      while (true) {
+        if (word != 0) return 2 * ((w << 6) + Long.numberOfTrailingZeros(word)) + 1;
+        if (++w == end) break;
+        word = ~m.getLong(HEADER_BYTES + 8 * (int) w);
+      }
+
+      // Ran off the end of the table, so grow it and pick up where we left off
+      if (bound() >= MAX_BOUND) throw new IllegalArgumentException("no prime > " + n + " up to " + MAX_BOUND);
+      i = w << 6;
+      ensure(Math.min(MAX_BOUND, 2 * bound()));
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  /**
+   * Grows the table (and the file) if it doesn't cover n yet. At least doubles it, so a run of slowly increasing
+   * queries doesn't have to grow it every time
+   */
+  private void ensure(long n) {
+    if (n <= bound()) return;
+    if (n > MAX_BOUND) throw new IllegalArgumentException("n must be <= " + MAX_BOUND + ", was " + n);
+
+    synchronized (this) {
+      if (n <= bound()) return;
+
+      try {
+        grow(wordsFor(Math.min(MAX_BOUND, Math.max(n, 2 * bound()))));
+      } catch (IOException e) {
+        throw new IllegalStateException("could not grow prime table", e);
+      }
+    }
+  }
+
+  /**
+   * Sieves words [words, target) and appends them to the file. Holds a file lock while it does so, and re-reads the
+   * header first, since another process may have grown the file in the meantime
+   */
+  private void grow(long target) throws IOException {
+    FileLock lock = channel.lock();
+    try {
+      long have = readWords();
+      if (have >= target) {
+        remap(have);
+        return;
+      }
+
+      MappedByteBuffer m = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + 8 * target);
+      int[] primes = basePrimes((int) isqrt(128 * target - 1));
+      long[] bits = new long[SEGMENT_BITS / 64];
+
+      // Segments hold a whole number of words, so each one starts on a word boundary
+      for (long i = have * 64; i < target * 64; i += SEGMENT_BITS) {
+        int nBits = (int) Math.min(SEGMENT_BITS, target * 64 - i);
+        sieveSegment(2 * i + 1, nBits, bits, primes);
+        if (i == 0) bits[0] |= 1;  // 1 isn't prime
+
+        int w = (int) (i >>> 6);
+        for (int k = 0; k < nBits >>> 6; k++) {
+          m.putLong(HEADER_BYTES + 8 * (w + k), bits[k]);
+        }
+      }
+
+      // Only update the header once all the words are there
+      m.putLong(0, MAGIC);
+      m.putLong(8, target);
+
+      map = m;
+      words = target;
+    } finally {
+      lock.release();
+    }
+  }
+
+  /**
+   * @return the number of words the file says it holds, or 0 for a new file. That includes a file whose header is
+   *   still all zeroes, which is what a process that crashed part way through the first grow leaves behind: grow
+   *   extends the file first, and only writes the header once the words are all there
+   */
+  private long readWords() throws IOException {
+    if (channel.size() < HEADER_BYTES) return 0;
+
+    ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+    while (header.hasRemaining()) {
+      if (channel.read(header, header.position()) < 0) break;
+    }
+    header.flip();
+
+    if (header.remaining() < HEADER_BYTES) throw new IOException("not a prime table");
+
+    long magic = header.getLong();
+    long count = header.getLong();
+    if (magic == 0 && count == 0) return 0;
+    if (magic != MAGIC) throw new IOException("not a prime table");
+    return count;
+  }
+
+  private void remap(long newWords) throws IOException {
+    map = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + 8 * newWords);
+    words = newWords;
+  }
+
+  private static long wordsFor(long n) {
+    return (n / 128) + 1;
+  }
+}
@@ -0,0 +1,205 @@
+package examples.chapter01;
+
+/**
+ * Primality queries on single numbers, for when building a whole Sieve would be overkill. Small numbers are looked up
+ * in a bitset, and anything bigger goes through a deterministic Miller-Rabin test, done in Montgomery form so that
+ * it never needs a division (or a BigInteger) to reduce mod n. Nothing here allocates.
+ *
+ * Deterministic means there's no chance of error: the bases used are known to catch every composite in range.
+ */
+public class Primes {
+
+  // Numbers below this are answered from the table
+  static final int TABLE_LIMIT = 1 << 16;
+
+  // Largest prime that fits in a long
+  static final long LARGEST_LONG_PRIME = Long.MAX_VALUE - 24;
+
+  // Odd-only bitset, bit i is 2*i + 1, set if composite. Same layout as SegmentedSieve
+  private static final long[] TABLE = new long[TABLE_LIMIT / 128];
+  static {
+    TABLE[0] = 1;  // 1 isn't prime
+    for (int p : SegmentedSieve.basePrimes((int) SegmentedSieve.isqrt(TABLE_LIMIT))) {
+      for (int m = p * p; m < TABLE_LIMIT; m += 2 * p) {
+        TABLE[m >>> 7] |= 1L << (m >>> 1);
+      }
+    }
+  }
+
+  // Testing these bases is enough for every n < 4,759,123,141 (Jaeschke)
+  private static final long[] BASES_32 = {2, 7, 61};
+  private static final long BASES_32_LIMIT = 4_759_123_141L;
+
+  // And these are enough for every n < 2^64 (Sinclair)
+  private static final long[] BASES_64 = {2, 325, 9375, 28178, 450775, 9780504, 1795265022};
+
+  // Trial divide by these first, it's much cheaper than Miller-Rabin and catches most composites
+  private static final int[] SMALL_PRIMES = {3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37, 41, 43, 47};
+
+  /**
+   * @param n number to check
+   * @return true if n is prime
+   */
+  public static boolean isPrime(long n) {
+    if (n < TABLE_LIMIT) return n >= 0 && inTable((int) n);
+    if ((n & 1) == 0) return false;
+
+    for (int p : SMALL_PRIMES) {
+      if (n % p == 0) return false;
+    }
+
+    return millerRabin(n, n < BASES_32_LIMIT ? BASES_32 : BASES_64);
+  }
+
+  /**
+   * Finds the smallest prime greater than some number
+   *
+   * @param n the computed prime will be larger than this
+   * @return the computed prime
+   * @throws IllegalArgumentException if there's no larger prime that fits in a long
+   */
+  public static long nextPrime(long n) {
+    if (n < 2) return 2;
+    if (n >= LARGEST_LONG_PRIME) throw new IllegalArgumentException("no prime > " + n + " fits in a long");
+
+    long candidate = (n + 1) | 1;
+    while (!isPrime(candidate)) candidate += 2;
+
+    return candidate;
+  }
+
+  /**
+   * Finds the largest prime less than some number
+   *
+   * @param n the computed prime will be smaller than this
+   * @return the computed prime
+   * @throws IllegalArgumentException if n <= 2, since there's no smaller prime
+   */
+  public static long prevPrime(long n) {
+    if (n <= 2) throw new IllegalArgumentException("n must be > 2, was " + n);
+    return largestPrimeUpTo(n - 1);
+  }
+
+  /**
+   * Computes the largest prime up to or equal to some number. Same answer as Sieve.largestPrimeUpTo, but it works
+   * for any long, and only tests the handful of numbers between the answer and max
+   *
+   * @param max the computed prime will be this large or smaller
+   * @return the computed prime
+   */
+  public static long largestPrimeUpTo(long max) {
+    if (max < 2) throw new IllegalArgumentException("max must be >= 2");
+    if (max < 3) return 2;
+
+    long candidate = (max & 1) == 0 ? max - 1 : max;
+    while (!isPrime(candidate)) candidate -= 2;
+
+    return candidate;
+  }
+
+  private static boolean inTable(int n) {
+    if ((n & 1) == 0) return n == 2;
+    return (TABLE[n >>> 7] & (1L << (n >>> 1))) == 0;
+  }
+
+  /**
+   * Strong probable prime test of odd n > 2 to each of the given bases. With the right bases, this is exact
+   */
+  private static boolean millerRabin(long n, long[] bases) {
+    long nInv = montgomeryInverse(n);
+    long one = Long.remainderUnsigned(-n, n);  // 2^64 mod n, which is 1 in Montgomery form
+    long minusOne = n - one;
+    long r2 = r2(n, one);
+
+    long d = n - 1;
+    int s = Long.numberOfTrailingZeros(d);
+    d >>>= s;
+
+    nextBase:
+    for (long a : bases) {
+      a %= n;
+      if (a == 0) continue;
+
+      long x = pow(montMultiply(a, r2, n, nInv), d, one, n, nInv);
+      if (x == one || x == minusOne) continue;
+
+      for (int i = 1; i < s; i++) {
+        x = montMultiply(x, x, n, nInv);
+        if (x == minusOne) continue nextBase;
+      }
+
+      return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * base^e, with base (and the result) in Montgomery form
+   */
+  private static long pow(long base, long e, long one, long n, long nInv) {
+    long result = one;
+
+    while (e > 0) {
+      if ((e & 1) != 0) result = montMultiply(result, base, n, nInv);
+      base = montMultiply(base, base, n, nInv);
+      e >>>= 1;
+    }
+
+    return result;
+  }
+
+  /**
+   * Montgomery product: a * b / 2^64 mod n, for a, b < n < 2^63. Subtracting the right multiple of n makes the low
+   * half of the product 0, so the division by 2^64 is just taking the high half
+   */
+  static long montMultiply(long a, long b, long n, long nInv) {
+    long lo = a * b;
+    long hi = multiplyHighUnsigned(a, b);
+
+    long m = lo * nInv;  // m*n has the same low half as a*b, so there's no borrow out of it
+    long t = hi - multiplyHighUnsigned(m, n);
+
+    // Both high halves are < n, so t is in (-n, n)
+    return t < 0 ? t + n : t;
+  }
+
+  /**
+   * n^-1 mod 2^64, for odd n. Newton's iteration doubles the number of correct bits each time, and n is its own
+   * inverse to 3 bits to start with
+   */
+  static long montgomeryInverse(long n) {
+    long inv = n;
+    for (int i = 0; i < 5; i++) {
+      inv *= 2 - n * inv;
+    }
+    return inv;
+  }
+
+  /**
+   * 2^128 mod n, for converting into Montgomery form. Start from 2^64 mod n and double it 64 more times
+   */
+  private static long r2(long n, long r) {
+    for (int i = 0; i < 64; i++) {
+      r <<= 1;  // r < n < 2^63, so this can't lose a bit
+      if (Long.compareUnsigned(r, n) >= 0) r -= n;
+    }
+    return r;
+  }
+
+  /**
+   * The high 64 bits of the unsigned 128 bit product of a and b
+   */
+  static long multiplyHighUnsigned(long a, long b) {
+    long aLo = a & 0xFFFFFFFFL, aHi = a >>> 32;
+    long bLo = b & 0xFFFFFFFFL, bHi = b >>> 32;
+
+    long loLo = aLo * bLo;
+    long hiLo = aHi * bLo;
+    long loHi = aLo * bHi;
+    long hiHi = aHi * bHi;
+
+    long cross = (loLo >>> 32) + (hiLo & 0xFFFFFFFFL) + loHi;
+    return hiHi + (hiLo >>> 32) + (cross >>> 32);
+  }
+}
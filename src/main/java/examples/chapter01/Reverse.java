@@ -1,26 +1,177 @@
 package examples.chapter01;
 
+import java.nio.ByteBuffer;
+import java.text.BreakIterator;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.RandomAccess;
+import java.util.stream.IntStream;
 
+/**
+ * Reverses strings, and lists of strings. Strings are reversed a code point at a time, so a character outside the
+ * Basic Multilingual Plane (an emoji, say), which Java stores as two chars, stays in one piece. That's the same as
+ * StringBuilder.reverse. reverseGraphemes goes further, and keeps characters made of more than one code point, like
+ * an e followed by a combining accent, together too.
+ *
+ * Each string is copied into a scratch char[], reversed there with a swap loop, and copied out into the result. The
+ * scratch buffer belongs to the thread, and gets reused for every string, so the only thing allocated per string is
+ * the result itself.
+ */
 public class Reverse {
 
+  // Lists at least this long are split between threads, when asked for in parallel
+  static final int PARALLEL_THRESHOLD = 1 << 12;
+
+  // Scratch buffers up to this size are kept for next time, anything bigger is only used once
+  private static final int MAX_SCRATCH_CHARS = 1 << 16;
+
+  private static final ThreadLocal<char[]> SCRATCH = ThreadLocal.withInitial(() -> new char[256]);
+
+  /**
+   * @param xs strings to reverse
+   * @return a new list, with the strings in reverse order, and each string reversed
+   */
   public static List<String> reverse(List<String> xs) {
-    List<String> out = new ArrayList<>();
+    return reverse(xs, false);
+  }
+
+  /**
+   * @param xs strings to reverse
+   * @param parallel whether to reverse the strings on every thread of the common ForkJoinPool. Only does so for lists
+   *                 of at least PARALLEL_THRESHOLD strings
+   * @return a new list, with the strings in reverse order, and each string reversed
+   */
+  public static List<String> reverse(List<String> xs, boolean parallel) {
+    int n = xs.size();
 
-    // loop backwards through list
-    for(int i = xs.size()-1; i >= 0; i--) {
-      String x = xs.get(i);
-      StringBuilder reversed = new StringBuilder();
+    if (!parallel || n < PARALLEL_THRESHOLD) {
+      List<String> out = new ArrayList<>(n);
 
-      // reverse the string
-      for(int j = x.length()-1; j >= 0; j--) {
-        reversed.append(x.charAt(j));
+      if (xs instanceof RandomAccess) {
+        for (int i = n - 1; i >= 0; i--) out.add(reverse(xs.get(i)));
+      } else {
+        // Reverse each one as it comes, then reverse the order of the list
+        for (String x : xs) out.add(reverse(x));
+        for (int i = 0, j = n - 1; i < j; i++, j--) out.set(i, out.set(j, out.get(i)));
       }
 
-      out.add(reversed.toString());
+      return out;
     }
 
-    return out;
+    // get(i) is only fast on RandomAccess lists, so copy anything else into an array first
+    String[] in = xs instanceof RandomAccess ? null : xs.toArray(new String[n]);
+    String[] out = new String[n];
+    IntStream.range(0, n).parallel().forEach(i -> out[n - 1 - i] = reverse(in == null ? xs.get(i) : in[i]));
+
+    return new ArrayList<>(Arrays.asList(out));
+  }
+
+  /**
+   * @param s string to reverse
+   * @return s, backwards, with surrogate pairs kept in order
+   */
+  public static String reverse(String s) {
+    int len = s.length();
+    if (len < 2) return s;
+
+    char[] scratch = scratch(len);
+    s.getChars(0, len, scratch, 0);
+    reverse(scratch, 0, len);
+
+    return new String(scratch, 0, len);
+  }
+
+  /**
+   * @param s string to reverse
+   * @return s, backwards, with every user-perceived character (as far as BreakIterator knows) kept in order
+   */
+  public static String reverseGraphemes(String s) {
+    int len = s.length();
+    if (len < 2) return s;
+
+    char[] scratch = scratch(len);
+    BreakIterator graphemes = BreakIterator.getCharacterInstance();
+    graphemes.setText(s);
+
+    // The grapheme that's at [start, end) in s goes at [len - end, len - start) in the result
+    int start = graphemes.first();
+    for (int end = graphemes.next(); end != BreakIterator.DONE; start = end, end = graphemes.next()) {
+      s.getChars(start, end, scratch, len - end);
+    }
+
+    return new String(scratch, 0, len);
+  }
+
+  /**
+   * Reverses a[off] through a[off + len - 1], in place, keeping surrogate pairs in order
+   *
+   * @param a chars to reverse
+   * @param off first char to reverse
+   * @param len how many chars to reverse
+   */
+  public static void reverse(char[] a, int off, int len) {
+    if (off < 0 || len < 0 || len > a.length - off)
+      throw new IllegalArgumentException("off=" + off + ", len=" + len + " out of range for length " + a.length);
+
+    boolean surrogates = false;
+    for (int i = off, j = off + len - 1; i < j; i++, j--) {
+      char tmp = a[i];
+      a[i] = a[j];
+      a[j] = tmp;
+      surrogates |= Character.isSurrogate(a[i]) | Character.isSurrogate(a[j]);
+    }
+    if (len % 2 == 1) surrogates |= Character.isSurrogate(a[off + len / 2]);
+
+    // Every pair is now backwards, low surrogate first, so swap them back
+    if (surrogates) {
+      for (int i = off; i < off + len - 1; i++) {
+        if (Character.isLowSurrogate(a[i]) && Character.isHighSurrogate(a[i + 1])) {
+          char tmp = a[i];
+          a[i] = a[i + 1];
+          a[i + 1] = tmp;
+          i++;
+        }
+      }
+    }
+  }
+
+  /**
+   * Reverses the UTF-8 text in buf[off] through buf[off + len - 1], in place, a code point at a time, the same as
+   * reverse(String) does. Reverses all the bytes, which leaves each multi-byte character backwards, then puts those
+   * back the right way round
+   *
+   * @param buf text to reverse
+   * @param off where it starts
+   * @param len how many bytes long it is
+   */
+  public static void reverseUtf8(ByteBuffer buf, int off, int len) {
+    reverseBytes(buf, off, off + len - 1);
+
+    // Backwards, each character is its continuation bytes (10xxxxxx) followed by its first byte
+    int i = off, end = off + len;
+    while (i < end) {
+      int start = i;
+      while (i < end && (buf.get(i) & 0xc0) == 0x80) i++;
+      if (i > start && i < end) reverseBytes(buf, start, i);
+      i++;
+    }
+  }
+
+  private static void reverseBytes(ByteBuffer buf, int lo, int hi) {
+    for (; lo < hi; lo++, hi--) {
+      byte tmp = buf.get(lo);
+      buf.put(lo, buf.get(hi));
+      buf.put(hi, tmp);
+    }
+  }
+
+  private static char[] scratch(int len) {
+    char[] scratch = SCRATCH.get();
+    if (scratch.length >= len) return scratch;
+
+    scratch = new char[Math.max(len, 2 * scratch.length)];
+    if (scratch.length <= MAX_SCRATCH_CHARS) SCRATCH.set(scratch);
+    return scratch;
   }
 }
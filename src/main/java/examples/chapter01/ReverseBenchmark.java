@@ -0,0 +1,67 @@
+package examples.chapter01;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures reversing a list of short lines, in millions of lines per second: the old StringBuilder-per-string, char at
+ * a time loop, StringBuilder.reverse, and Reverse, sequentially and in parallel. The rounds and timing come from
+ * Benchmarks
+ *
+ * To build and run:
+ *   $ javac -sourcepath src/main/java -d build/manual src/main/java/examples/chapter01/ReverseBenchmark.java
+ *   $ java -cp build/manual examples.chapter01.ReverseBenchmark
+ */
+public class ReverseBenchmark {
+
+  private static final int LINES = 1 << 20;
+
+  public static void main(String[] args) throws Exception {
+    List<String> lines = lines();
+
+    Benchmarks.rounds(() -> {
+      Benchmarks.time("char at a time", 5, LINES, "line", () -> charAtATime(lines).get(0).length());
+      Benchmarks.time("StringBuilder.reverse", 5, LINES, "line", () -> {
+        List<String> out = new ArrayList<>(lines.size());
+        for (int i = lines.size() - 1; i >= 0; i--) out.add(new StringBuilder(lines.get(i)).reverse().toString());
+        return out.get(0).length();
+      });
+      Benchmarks.time("Reverse", 5, LINES, "line", () -> Reverse.reverse(lines).get(0).length());
+      // The work is on the common pool's threads, so this thread's allocation count would mean nothing
+      Benchmarks.timeThroughput("Reverse parallel", 5, LINES, "line",
+        () -> Reverse.reverse(lines, true).get(0).length());
+    });
+  }
+
+  /**
+   * What Reverse.reverse used to do
+   */
+  private static List<String> charAtATime(List<String> xs) {
+    List<String> out = new ArrayList<>();
+    for (int i = xs.size() - 1; i >= 0; i--) {
+      String x = xs.get(i);
+      StringBuilder sb = new StringBuilder();
+      for (int j = x.length() - 1; j >= 0; j--) sb.append(x.charAt(j));
+      out.add(sb.toString());
+    }
+    return out;
+  }
+
+  /**
+   * Lines of 20 - 100 chars, mostly ASCII
+   */
+  private static List<String> lines() {
+    Random rng = new Random(1);
+    String alphabet = "abcdefghijklmnopqrstuvwxyz      .,\u00e9";
+    List<String> lines = new ArrayList<>(LINES);
+
+    for (int i = 0; i < LINES; i++) {
+      char[] line = new char[20 + rng.nextInt(80)];
+      for (int j = 0; j < line.length; j++) line[j] = alphabet.charAt(rng.nextInt(alphabet.length()));
+      lines.add(new String(line));
+    }
+
+    return lines;
+  }
+}
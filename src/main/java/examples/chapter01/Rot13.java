@@ -0,0 +1,208 @@
+package examples.chapter01;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.LongStream;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Rot13 over whole buffers at once, in place. Rot13Input does one char at a time, which is fine for a line someone
+ * typed, but slow for a log file.
+ *
+ * Bytes are done 8 at a time, as longs, with SWAR ("SIMD within a register") arithmetic: every step works on all 8
+ * bytes at once, and is arranged so that no byte ever carries into its neighbour. There are no branches per byte, and
+ * the whole thing is a couple of dozen instructions per 8 bytes. That only works while every byte is ASCII (< 0x80),
+ * so a word with any non-ASCII byte in it goes through a 256 entry lookup table instead. The table leaves bytes >= 0x80
+ * alone, so UTF-8 text comes out as valid UTF-8, with only its ASCII letters changed.
+ *
+ * The SWAR steps don't care what order the bytes are in, so the longs can be read in whatever byte order is fastest.
+ *
+ * For whole files, rot13File maps the input and output and encodes from one to the other on every core.
+ */
+public class Rot13 {
+
+  // rot13 of every byte value, letters are rotated and everything else (including all of 0x80 - 0xff) stays the same
+  private static final byte[] TABLE = new byte[256];
+  static {
+    for (int b = 0; b < 256; b++) {
+      TABLE[b] = (byte) rot13((char) b);
+    }
+  }
+
+  // rot13File's unit of work, each chunk is mapped and encoded on its own
+  static final int CHUNK_BYTES = 1 << 24;
+
+  // The same byte in every position of a long
+  private static final long ONES = 0x0101010101010101L;
+  private static final long HIGH_BITS = 0x8080808080808080L;
+
+  /**
+   * @param c char to encode
+   * @return the char 13 letters on, if c is an ASCII letter, otherwise c
+   */
+  public static char rot13(char c) {
+    if (c >= 'A' && c <= 'Z') return (char) ('A' + (c - 'A' + 13) % 26);
+    if (c >= 'a' && c <= 'z') return (char) ('a' + (c - 'a' + 13) % 26);
+    return c;
+  }
+
+  /**
+   * Rot13s a[off] through a[off + len - 1], in place
+   *
+   * @param a bytes to encode, ASCII or UTF-8
+   * @param off first byte to encode
+   * @param len how many bytes to encode
+   */
+  public static void rot13(byte[] a, int off, int len) {
+    checkRange(a.length, off, len);
+    rot13(ByteBuffer.wrap(a), off, len);
+  }
+
+  /**
+   * Rot13s the bytes from index off to off + len - 1, in place. Uses absolute indexes, so the buffer's position,
+   * limit and byte order are left alone. Read only buffers throw a ReadOnlyBufferException
+   *
+   * @param buf bytes to encode, ASCII or UTF-8, can be direct or not
+   * @param off first byte to encode
+   * @param len how many bytes to encode
+   */
+  public static void rot13(ByteBuffer buf, int off, int len) {
+    rot13(buf, off, buf, off, len);
+  }
+
+  /**
+   * Rot13s len bytes from src, starting at srcOff, into dst, starting at dstOff. Same as copying them and then
+   * encoding them in place, but in one pass. Positions, limits and byte orders are left alone
+   *
+   * @param src bytes to encode, ASCII or UTF-8
+   * @param srcOff first byte to encode
+   * @param dst where to put the encoded bytes, can be src
+   * @param dstOff where to put the first one
+   * @param len how many bytes to encode
+   */
+  public static void rot13(ByteBuffer src, int srcOff, ByteBuffer dst, int dstOff, int len) {
+    checkRange(src.limit(), srcOff, len);
+    checkRange(dst.limit(), dstOff, len);
+
+    // Long views of just the ranges, in native order, which is the fastest way Java 8 has to read 8 bytes at once
+    LongBuffer in = longView(src, srcOff, len);
+    LongBuffer out = src == dst && srcOff == dstOff ? in : longView(dst, dstOff, len);
+
+    for (int w = 0; w < in.limit(); w++) {
+      long word = in.get(w);
+
+      if ((word & HIGH_BITS) == 0) {
+        out.put(w, rot13Ascii(word));
+      } else {
+        for (int i = 8 * w; i < 8 * w + 8; i++) {
+          dst.put(dstOff + i, TABLE[src.get(srcOff + i) & 0xff]);
+        }
+      }
+    }
+
+    for (int i = 8 * in.limit(); i < len; i++) {
+      dst.put(dstOff + i, TABLE[src.get(srcOff + i) & 0xff]);
+    }
+  }
+
+  private static LongBuffer longView(ByteBuffer buf, int off, int len) {
+    ByteBuffer range = buf.duplicate();
+    range.position(off);
+    range.limit(off + len);
+    return range.slice().order(ByteOrder.nativeOrder()).asLongBuffer();
+  }
+
+  /**
+   * Rot13s a whole file into another one, by memory mapping both and encoding straight from one mapping into the
+   * other, so the bytes never get copied onto the heap. The file is split into CHUNK_BYTES chunks, which are done in
+   * parallel on the common ForkJoinPool. Rot13 doesn't care what's on either side of a byte, so the chunks can split
+   * the file anywhere, even in the middle of a UTF-8 character
+   *
+   * @param in file to encode
+   * @param out where to write the encoded file, replacing anything already there. Can't be the same file as in
+   * @throws IllegalArgumentException if out is the same file as in, even by another path or a link
+   * @throws IOException if either file can't be read or written
+   */
+  public static void rot13File(Path in, Path out) throws IOException {
+    // Opening out truncates it, which would wipe in before a byte of it was read
+    if (Files.exists(out) && Files.isSameFile(in, out))
+      throw new IllegalArgumentException(in + " and " + out + " are the same file");
+
+    try (FileChannel src = FileChannel.open(in, READ);
+         FileChannel dst = FileChannel.open(out, CREATE, READ, WRITE, TRUNCATE_EXISTING)) {
+      long size = src.size();
+      long chunks = (size + CHUNK_BYTES - 1) / CHUNK_BYTES;
+
+      try {
+        LongStream.range(0, chunks).parallel().forEach(c -> {
+          long start = c * CHUNK_BYTES;
+          int len = (int) Math.min(CHUNK_BYTES, size - start);
+
+          try {
+            MappedByteBuffer from = src.map(FileChannel.MapMode.READ_ONLY, start, len);
+            MappedByteBuffer to = dst.map(FileChannel.MapMode.READ_WRITE, start, len);  // grows the file to fit
+            rot13(from, 0, to, 0, len);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+    }
+  }
+
+  /**
+   * Rot13s a[off] through a[off + len - 1], in place. Anything that isn't an ASCII letter is left alone, including
+   * both halves of a surrogate pair
+   *
+   * @param a chars to encode
+   * @param off first char to encode
+   * @param len how many chars to encode
+   */
+  public static void rot13(char[] a, int off, int len) {
+    checkRange(a.length, off, len);
+
+    for (int i = off; i < off + len; i++) {
+      char c = a[i];
+      if (c < 0x80) a[i] = (char) TABLE[c];
+    }
+  }
+
+  /**
+   * Rot13s 8 ASCII bytes at once. Works on (byte | 0x20), which turns upper case letters into lower case and leaves
+   * lower case alone, so one range check covers both. Each comparison adds a constant that pushes a byte's top bit on
+   * exactly when it's >= some value. Since every byte starts out < 0x80, the sums are all < 0x100, so nothing carries
+   * from one byte into the next
+   */
+  static long rot13Ascii(long word) {
+    long lower = word | (0x20 * ONES);
+
+    long atLeastA = lower + (0x80 - 'a') * ONES;
+    long moreThanZ = lower + (0x80 - 'z' - 1) * ONES;
+    long atLeastN = lower + (0x80 - 'n') * ONES;
+
+    long letters = atLeastA & ~moreThanZ & HIGH_BITS;
+    long firstHalf = (letters & ~atLeastN) >>> 7;  // 1 in each byte that's a - m (or A - M)
+    long secondHalf = (letters & atLeastN) >>> 7;  // 1 in each byte that's n - z (or N - Z)
+
+    // a - m go up 13, n - z go down 13, neither can leave its byte
+    return word + 13 * firstHalf - 13 * secondHalf;
+  }
+
+  private static void checkRange(int length, int off, int len) {
+    if (off < 0 || len < 0 || len > length - off)
+      throw new IllegalArgumentException("off=" + off + ", len=" + len + " out of range for length " + length);
+  }
+}
@@ -0,0 +1,75 @@
+package examples.chapter01;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.function.LongSupplier;
+
+/**
+ * Measures Rot13 throughput in millions of bytes per second, against the one char at a time loop Rot13Input used to
+ * run, on mostly ASCII text and on text with some UTF-8 in it. The rounds and timing come from Benchmarks
+ *
+ * To build and run:
+ *   $ javac -sourcepath src/main/java -d build/manual src/main/java/examples/chapter01/Rot13Benchmark.java
+ *   $ java -cp build/manual examples.chapter01.Rot13Benchmark
+ */
+public class Rot13Benchmark {
+
+  private static final int SIZE = 1 << 24;
+
+  public static void main(String[] args) throws Exception {
+    byte[] ascii = text(false);
+    byte[] utf8 = text(true);
+    ByteBuffer direct = ByteBuffer.allocateDirect(SIZE);
+    direct.put(ascii).clear();
+    char[] chars = new String(ascii, 0, SIZE, StandardCharsets.ISO_8859_1).toCharArray();
+    StringBuilder sb = new StringBuilder(new String(chars));
+
+    Benchmarks.rounds(() -> {
+      time("StringBuilder.setCharAt", () -> {
+        for (int i = 0; i < sb.length(); i++) sb.setCharAt(i, Rot13Input.rot13(sb.charAt(i)));
+        return sb.charAt(0);
+      });
+      time("Rot13 byte[] ASCII", () -> {
+        Rot13.rot13(ascii, 0, SIZE);
+        return ascii[0];
+      });
+      time("Rot13 byte[] UTF-8", () -> {
+        Rot13.rot13(utf8, 0, SIZE);
+        return utf8[0];
+      });
+      time("Rot13 direct ByteBuffer", () -> {
+        Rot13.rot13(direct, 0, SIZE);
+        return direct.get(0);
+      });
+      time("Rot13 char[]", () -> {
+        Rot13.rot13(chars, 0, SIZE);
+        return chars[0];
+      });
+    });
+  }
+
+  /**
+   * Log-like text: words, digits and punctuation, and optionally a non-ASCII character every 100 bytes or so
+   */
+  private static byte[] text(boolean withUtf8) {
+    Random rng = new Random(1);
+    String alphabet = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789     .,:[]=-\n";
+    byte[] out = new byte[SIZE];
+
+    for (int i = 0; i < SIZE; i++) {
+      if (withUtf8 && i + 1 < SIZE && rng.nextInt(100) == 0) {
+        out[i++] = (byte) 0xc3;  // a two byte UTF-8 sequence, an accented letter
+        out[i] = (byte) 0xa9;
+      } else {
+        out[i] = (byte) alphabet.charAt(rng.nextInt(alphabet.length()));
+      }
+    }
+
+    return out;
+  }
+
+  private static void time(String name, LongSupplier transform) {
+    Benchmarks.time(name, 20, SIZE, "byte", transform);
+  }
+}
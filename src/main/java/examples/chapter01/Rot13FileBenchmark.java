@@ -0,0 +1,103 @@
+package examples.chapter01;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Encodes a file three ways, and reports each one in millions of bytes per second: Rot13Input's original
+ * BufferedReader loop (with the output going to a BufferedWriter rather than System.out, to be fair to it), the --batch
+ * ChannelPipeline, and the memory mapped Rot13.rot13File. The rounds and timing come from Benchmarks
+ *
+ * To build and run (the argument is the file size in MB, 256 by default):
+ *   $ javac -sourcepath src/main/java -d build/manual src/main/java/examples/chapter01/Rot13FileBenchmark.java
+ *   $ java -cp build/manual examples.chapter01.Rot13FileBenchmark 1024
+ */
+public class Rot13FileBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    long size = (args.length > 0 ? Long.parseLong(args[0]) : 256) << 20;
+    Path in = Files.createTempFile("rot13", ".in");
+    Path out = Files.createTempFile("rot13", ".out");
+
+    try {
+      writeText(in, size);
+
+      // The first round also pulls the file into the page cache
+      Benchmarks.rounds(() -> {
+        time("BufferedReader lines", size, out, () -> lineLoop(in, out));
+        time("ChannelPipeline", size, out, () -> {
+          try (FileChannel src = FileChannel.open(in, READ);
+               FileChannel dst = FileChannel.open(out, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            ChannelPipeline.transformChunks(src, dst, Rot13::rot13);
+          }
+        });
+        time("Rot13.rot13File", size, out, () -> Rot13.rot13File(in, out));
+      });
+    } finally {
+      Files.delete(in);
+      Files.delete(out);
+    }
+  }
+
+  /**
+   * What Rot13Input does interactively, a line and a char at a time
+   */
+  static void lineLoop(Path in, Path out) throws IOException {
+    try (BufferedReader reader = Files.newBufferedReader(in, StandardCharsets.UTF_8);
+         BufferedWriter writer = Files.newBufferedWriter(out, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        StringBuilder sb = new StringBuilder(line);
+        for (int i = 0; i < sb.length(); i++) {
+          sb.setCharAt(i, Rot13Input.rot13(sb.charAt(i)));
+        }
+        writer.append(sb).append('\n');
+      }
+    }
+  }
+
+  private static void writeText(Path file, long size) throws IOException {
+    Random rng = new Random(1);
+    byte[] line = new byte[100];
+    String alphabet = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789     .,:[]=-";
+
+    try (OutputStream stream = Files.newOutputStream(file)) {
+      for (long written = 0; written < size; written += line.length) {
+        for (int i = 0; i < line.length - 1; i++) line[i] = (byte) alphabet.charAt(rng.nextInt(alphabet.length()));
+        line[line.length - 1] = '\n';
+        stream.write(line, 0, (int) Math.min(line.length, size - written));
+      }
+    }
+  }
+
+  private interface Transform {
+    void run() throws IOException;
+  }
+
+  /**
+   * rot13File does its work on the common pool, so no allocation count. The checksum is the size of what was written
+   */
+  private static void time(String name, long size, Path out, Transform transform) {
+    Benchmarks.timeThroughput(name, 1, size, "byte", () -> {
+      try {
+        transform.run();
+        return Files.size(out);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+  }
+}
@@ -1,16 +1,38 @@
 package examples.chapter01;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.file.Paths;
 
 /**
  * To build and run:
  *   $ javac -sourcepath src/main/java -d build/manual src/main/java/examples/chapter01/Rot13Input.java
  *   $ java -cp build/manual examples.chapter01.Rot13Input
+ *
+ * Or, to encode a whole file at once, with no prompts (see ChannelPipeline):
+ *   $ java -cp build/manual examples.chapter01.Rot13Input --batch < in.txt > out.txt
+ *
+ * Or, fastest of all for big files, give it the files themselves, and it'll memory map them (see Rot13.rot13File):
+ *   $ java -cp build/manual examples.chapter01.Rot13Input in.txt out.txt
  */
 public class Rot13Input {
 
-  public static void main(String[] args) {
+  public static void main(String[] args) throws IOException {
+    if (args.length > 0 && args[0].equals("--batch")) {
+      ChannelPipeline.transformChunks(ChannelPipeline.stdin(), ChannelPipeline.stdout(), Rot13::rot13);
+      return;
+    }
+
+    if (args.length == 2) {
+      try {
+        Rot13.rot13File(Paths.get(args[0]), Paths.get(args[1]));
+      } catch (IllegalArgumentException e) {
+        System.out.println(e.getMessage() + ", give it somewhere else to write to");
+      }
+      return;
+    }
+
     BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
 
     for(;;) {
@@ -20,13 +42,10 @@ public class Rot13Input {
         String line = in.readLine();
         if (line == null || line.equals("quit")) break;
 
-        StringBuilder sb = new StringBuilder(line);
+        char[] chars = line.toCharArray();
+        Rot13.rot13(chars, 0, chars.length);
 
-        for (int i = 0; i < sb.length(); i++) {
-          sb.setCharAt(i, rot13(sb.charAt(i)));
-        }
-
-        System.out.println(sb);
+        System.out.println(chars);
       }
 
       catch (Exception e) {
@@ -37,23 +56,13 @@ public class Rot13Input {
 
   /**
    * Performs Rot13 substitution cipher. Returns a new char that is 13 chars ahead of the input. Both encodes and
-   * decodes, since c == rot13(rot13(c))
+   * decodes, since c == rot13(rot13(c)). For more than a char at a time, see Rot13
    *
    * @param c char to encode
    * @return encoded char
    */
   static char rot13(char c) {
-    if (c >= 'A' && c <= 'Z') {  // uppercase
-      c += 13;
-      if (c > 'Z') c -= 26;      // don't overflow
-    }
-
-    if (c >= 'a' && c <= 'z') {  // lowercase
-      c += 13;
-      if (c > 'z') c -= 26;
-    }
-
-    return c;
+    return Rot13.rot13(c);
   }
 
 }
@@ -0,0 +1,57 @@
+package examples.chapter01;
+
+import examples.chapter01.SortedDoubleIndex.Layout;
+
+import java.util.Random;
+
+/**
+ * Compares SortedDoubleIndex's layouts, one query at a time and in batches, on arrays from 100 to 10^8 elements, with
+ * Benchmarks. The bigger arrays need a big heap, sizes that don't fit are skipped:
+ *
+ * To build and run:
+ *   $ javac -sourcepath src/main/java -d build/manual src/main/java/examples/chapter01/SearchBenchmark.java
+ *   $ java -Xmx4g -cp build/manual examples.chapter01.SearchBenchmark
+ */
+public class SearchBenchmark {
+
+  private static final int QUERIES = 1 << 20;
+
+  public static void main(String[] args) throws Exception {
+    Random rng = new Random(1);
+    double[] queries = new double[QUERIES];
+    int[] out = new int[QUERIES];
+
+    for (int n : new int[]{100, 10_000, 1_000_000, 100_000_000}) {
+      // The array, plus the biggest layout's copy and index
+      if (20L * n > Runtime.getRuntime().maxMemory() - 64_000_000) {
+        System.out.println("n=" + n + " skipped, not enough heap");
+        continue;
+      }
+
+      // Evenly spread, like PrintEnclosing's numbers, but not exactly evenly
+      double[] sorted = new double[n];
+      for (int i = 0; i < n; i++) sorted[i] = i + rng.nextDouble();
+      for (int i = 0; i < QUERIES; i++) queries[i] = rng.nextDouble() * n;
+
+      System.out.println();
+      System.out.println("n=" + n + ", AUTO picks " + SortedDoubleIndex.chooseLayout(sorted));
+      Benchmarks.rounds(() -> {
+        for (Layout layout : Layout.values()) {
+          if (layout == Layout.AUTO) continue;  // it'll be one of the others
+
+          // One index at a time, the biggest arrays don't have room for all of them at once
+          SortedDoubleIndex index = new SortedDoubleIndex(sorted, layout);
+          Benchmarks.time(layout.toString(), 1, QUERIES, "lookup", () -> {
+            long sum = 0;
+            for (double q : queries) sum += index.lowerBound(q);
+            return sum;
+          });
+          Benchmarks.time(layout + " batched", 1, QUERIES, "lookup", () -> {
+            index.lowerBound(queries, out);
+            return out[0];
+          });
+        }
+      });
+    }
+  }
+}
@@ -0,0 +1,209 @@
+package examples.chapter01;
+
+import java.util.Arrays;
+
+/**
+ * A sieve of Eratosthenes that only stores odd numbers, one bit each, in a long[]. Rather than sieving the whole range
+ * at once, it sieves one cache-sized segment at a time, so memory use stays bounded (and L1/L2 resident) no matter how
+ * large the numbers get.
+ *
+ * Within a segment starting at the odd number lo, bit i stands for the number lo + 2*i. A set bit means composite.
+ */
+public class SegmentedSieve {
+
+  // Odd numbers per segment. 2^18 bits is a 32KB long[], which fits in L1/L2 on anything we run on
+  static final int SEGMENT_BITS = 1 << 18;
+
+  /**
+   * Computes the largest prime up to or equal to some int. Sieves only the segment just below max, and only keeps
+   * walking down a segment at a time if that segment has no primes in it (which never happens in the int range)
+   *
+   * @param max the computed prime will be this large or smaller
+   * @return the computed prime
+   */
+  public static int largestPrimeUpTo(int max) {
+    if (max < 2) throw new IllegalArgumentException("max must be >= 2");
+    if (max < 3) return 2;
+
+    long hi = (max & 1) == 0 ? max - 1 : max;  // largest odd candidate
+    int[] primes = basePrimes((int) isqrt(hi));
+    long[] bits = new long[SEGMENT_BITS / 64];
+
+    while (hi >= 3) {
+      long lo = Math.max(3, hi - 2L * (SEGMENT_BITS - 1));
+      int nBits = (int) ((hi - lo) / 2) + 1;
+
+      sieveSegment(lo, nBits, bits, primes);
+
+      int i = lastClearBit(bits, nBits);
+      if (i >= 0) return (int) (lo + 2L * i);
+
+      hi = lo - 2;
+    }
+
+    return 2;
+  }
+
+  /**
+   * All odd primes up to and including limit, in ascending order. Note that 2 is not included, since the sieve never
+   * has to cross off even numbers
+   *
+   * @param limit the largest number to consider
+   * @return the odd primes <= limit
+   */
+  static int[] basePrimes(int limit) {
+    if (limit < 3) return new int[0];
+
+    // Small enough to sieve in one go, we just need the primes up to sqrt(limit) to get started
+    int small = (int) isqrt(limit);
+    int[] smallPrimes = simpleSieve(small);
+
+    int[] out = new int[estimatePrimeCount(limit)];
+    int count = 0;
+    long[] bits = new long[SEGMENT_BITS / 64];
+
+    for (long lo = 3; lo <= limit; lo += 2L * SEGMENT_BITS) {
+      int nBits = (int) Math.min(SEGMENT_BITS, (limit - lo) / 2 + 1);
+      sieveSegment(lo, nBits, bits, smallPrimes);
+
+      for (int i = nextClearBit(bits, 0, nBits); i >= 0; i = nextClearBit(bits, i + 1, nBits)) {
+        if (count == out.length) out = Arrays.copyOf(out, out.length + (out.length >> 1) + 1);
+        out[count++] = (int) (lo + 2L * i);
+      }
+    }
+
+    return Arrays.copyOf(out, count);
+  }
+
+  /**
+   * Sieves nBits odd numbers starting at lo (which must be odd), using the odd primes given. Afterwards, bit i of bits
+   * is set if lo + 2*i is composite. Primes must cover everything up to sqrt(lo + 2*(nBits - 1)) for the result to be
+   * exact. Note that the number 1 is not special cased, callers starting at 1 must mark it themselves
+   *
+   * @param lo the first (odd) number in the segment
+   * @param nBits how many odd numbers to sieve
+   * @param bits where to store the result, must hold at least nBits bits
+   * @param primes odd primes, in ascending order
+   */
+  static void sieveSegment(long lo, int nBits, long[] bits, int[] primes) {
+    int words = (nBits + 63) >>> 6;
+    Arrays.fill(bits, 0, words, 0L);
+
+    long hi = lo + 2L * (nBits - 1);
+
+    for (int p : primes) {
+      long square = (long) p * p;
+      if (square > hi) break;
+
+      // First odd multiple of p in the segment, but never cross off p itself
+      long start = Math.max(square, (lo + p - 1) / p * p);
+      if ((start & 1) == 0) start += p;
+
+      // Consecutive odd multiples of p are 2p apart, which is p bits apart
+      for (long j = (start - lo) >>> 1; j < nBits; j += p) {
+        bits[(int) (j >>> 6)] |= 1L << j;
+      }
+    }
+  }
+
+  /**
+   * @return the index of the first clear (prime) bit in [from, nBits), or -1 if there isn't one
+   */
+  static int nextClearBit(long[] bits, int from, int nBits) {
+    if (from >= nBits) return -1;
+
+    int w = from >>> 6;
+    long word = ~bits[w] & (-1L << from);
+
+    while (true) {
+      if (word != 0) {
+        int i = (w << 6) + Long.numberOfTrailingZeros(word);
+        return i < nBits ? i : -1;
+      }
+      if (++w << 6 >= nBits) return -1;
+      word = ~bits[w];
+    }
+  }
+
+  /**
+   * @return the index of the last clear (prime) bit in [0, nBits), or -1 if there isn't one
+   */
+  static int lastClearBit(long[] bits, int nBits) {
+    if (nBits <= 0) return -1;
+
+    int w = (nBits - 1) >>> 6;
+    long word = ~bits[w] & (-1L >>> (63 - ((nBits - 1) & 63)));
+
+    while (true) {
+      if (word != 0) return (w << 6) + 63 - Long.numberOfLeadingZeros(word);
+      if (--w < 0) return -1;
+      word = ~bits[w];
+    }
+  }
+
+  /**
+   * @return the number of clear (prime) bits in [0, nBits)
+   */
+  static int countClearBits(long[] bits, int nBits) {
+    int full = nBits >>> 6;
+    int count = 0;
+
+    for (int w = 0; w < full; w++) {
+      count += Long.bitCount(~bits[w]);
+    }
+
+    int rest = nBits & 63;
+    if (rest != 0) count += Long.bitCount(~bits[full] & ((1L << rest) - 1));
+
+    return count;
+  }
+
+  /**
+   * @return floor(sqrt(n)), exactly, for any non-negative long
+   */
+  static long isqrt(long n) {
+    long r = (long) Math.sqrt((double) n);
+
+    // Math.sqrt can be off by one either way once n no longer fits in a double exactly. Divide rather than square,
+    // so that we can't overflow
+    while (r > 0 && r > n / r) r--;
+    while (r + 1 <= n / (r + 1)) r++;
+
+    return r;
+  }
+
+  /**
+   * An upper bound on the number of primes <= n (Rosser and Schoenfeld), used to size arrays up front
+   */
+  private static int estimatePrimeCount(int n) {
+    if (n < 17) return 6;
+    return (int) Math.min(Integer.MAX_VALUE - 8, (long) (1.25506 * n / Math.log(n)) + 1);
+  }
+
+  /**
+   * Plain (non-segmented) odd-only sieve, for the small table of primes we need to bootstrap the segmented one
+   */
+  private static int[] simpleSieve(int limit) {
+    if (limit < 3) return new int[0];
+
+    int nBits = (limit - 3) / 2 + 1;  // bit i is 3 + 2*i
+    long[] bits = new long[(nBits + 63) >>> 6];
+
+    for (int i = 0; i < nBits; i++) {
+      if ((bits[i >>> 6] & (1L << i)) != 0) continue;
+
+      long p = 3 + 2L * i;
+      for (long j = (p * p - 3) / 2; j < nBits; j += p) {
+        bits[(int) (j >>> 6)] |= 1L << j;
+      }
+    }
+
+    int[] out = new int[countClearBits(bits, nBits)];
+    int count = 0;
+    for (int i = nextClearBit(bits, 0, nBits); i >= 0; i = nextClearBit(bits, i + 1, nBits)) {
+      out[count++] = 3 + 2 * i;
+    }
+
+    return out;
+  }
+}
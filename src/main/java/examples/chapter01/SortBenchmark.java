@@ -0,0 +1,67 @@
+package examples.chapter01;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+/**
+ * Compares DoubleSort's introsort and radix sort against Arrays.sort, on random doubles, at a few sizes. Then compares
+ * parallelSort against Arrays.parallelSort, on pools of 1, 2, 4, ... threads up to the number of cores. The rounds and
+ * timing come from Benchmarks
+ *
+ * To build and run:
+ *   $ javac -sourcepath src/main/java -d build/manual src/main/java/examples/chapter01/SortBenchmark.java
+ *   $ java -cp build/manual examples.chapter01.SortBenchmark
+ */
+public class SortBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    Benchmarks.rounds(() -> {
+      for (int n : new int[]{100, 1_000, 10_000, 100_000, 1_000_000, 10_000_000}) {
+        System.out.println("n=" + n);
+        time("Arrays.sort", n, Arrays::sort);
+        time("DoubleSort.sort", n, DoubleSort::sort);
+        time("DoubleSort.introSort", n, a -> DoubleSort.introSort(a, 0, a.length));
+        time("DoubleSort.radixSort", n, a -> DoubleSort.radixSort(a, 0, a.length));
+      }
+    });
+
+    int n = 50_000_000;
+    for (int threads = 1; threads <= Runtime.getRuntime().availableProcessors(); threads *= 2) {
+      ForkJoinPool pool = new ForkJoinPool(threads);
+      System.out.println();
+      System.out.println("n=" + n + ", threads=" + threads);
+
+      // Arrays.parallelSort only runs on the common pool, so it always uses every core
+      if (threads == 1) timeParallel("Arrays.parallelSort", n, Arrays::parallelSort);
+      timeParallel("DoubleSort.parallelSort", n, a -> DoubleSort.parallelSort(a, pool));
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Sorts fresh copies of the same random array until about 20 million elements have been sorted. Copying the input
+   * back in is part of the time, but it's one pass with no comparisons, which is small next to any sort
+   */
+  private static void time(String name, int n, Consumer<double[]> sort) {
+    double[] input = new Random(n).doubles(n, -1e6, 1e6).toArray();
+    double[] work = new double[n];
+    Benchmarks.time(name, Math.max(1, 20_000_000 / n), n, "element", () -> {
+      System.arraycopy(input, 0, work, 0, n);
+      sort.accept(work);
+      return Double.doubleToLongBits(work[n / 2]);
+    });
+  }
+
+  /**
+   * Same as time, for sorts that run on other threads
+   */
+  private static void timeParallel(String name, int n, Consumer<double[]> sort) {
+    double[] input = new Random(n).doubles(n, -1e6, 1e6).toArray();
+    Benchmarks.timeThroughput(name, 1, n, "element", () -> {
+      sort.accept(input);
+      return Double.doubleToLongBits(input[n / 2]);
+    });
+  }
+}
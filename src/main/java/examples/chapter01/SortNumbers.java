@@ -3,11 +3,32 @@ package examples.chapter01;
 public class SortNumbers {
 
   /**
-   * Sorts array of doubles. Sorts in place, as a side effect. Note: inefficient with large arrays
+   * Sorts array of doubles. Sorts in place, as a side effect. Uses the same order as Arrays.sort, so -0.0 comes
+   * before 0.0 and NaNs go at the end. See DoubleSort for how
    *
    * @param nums array to sort
    */
   public static void sortInPlace(double[] nums) {
+    DoubleSort.sort(nums);
+  }
+
+  /**
+   * Same as sortInPlace, but splits the work between all the threads of the common ForkJoinPool. Only worth it for big
+   * arrays; anything smaller than about 100,000 elements just gets sorted by sortInPlace
+   *
+   * @param nums array to sort
+   */
+  public static void parallelSort(double[] nums) {
+    DoubleSort.parallelSort(nums);
+  }
+
+  /**
+   * The original selection sort, kept as the simplest possible example of sorting. O(n^2), so only use it on small
+   * arrays
+   *
+   * @param nums array to sort
+   */
+  public static void selectionSort(double[] nums) {
 
     // Loop through each element in the array. Each time through, find the smallest remaining element,
     // move to the first unsorted position
@@ -0,0 +1,407 @@
+package examples.chapter01;
+
+/**
+ * Answers "where would x go?" questions about a fixed, sorted array of doubles: lowerBound (how many elements are < x),
+ * upperBound (how many are <= x), and the floor and ceiling of x.
+ *
+ * Every layout gives the same answers, they only differ in how fast they get there:
+ *
+ *   BINARY      the textbook binary search, straight on the sorted array
+ *   BRANCHLESS  binary search where each step is a conditional move instead of a branch, so there's nothing for the
+ *               CPU to mispredict, and always the same number of steps
+ *   EYTZINGER   a copy of the array in breadth first order, a[1] is the root and a[2k], a[2k+1] are k's children. The
+ *               first few levels of the tree share a handful of cache lines, so they stay in cache, and each node's
+ *               descendants a few levels down are next to each other, so the hardware prefetcher can get ahead
+ *   BTREE       a copy of the array as an implicit B-tree with 8 keys (one 64 byte cache line) per node, so each cache
+ *               miss narrows the search down 9 ways instead of 2
+ *   LEARNED     a model of where each value sits in the array: split the range from the smallest to the largest element
+ *               into equal width cells, about one per two elements, and record where in the array each cell starts.
+ *               A query computes its cell with one multiply, and only has to search the elements in that cell. For
+ *               evenly spread data that's a couple of elements, so a lookup is about two cache misses whatever the
+ *               size of the array. Cells with more than a few elements in them fall back to binary search
+ *   AUTO        picks LEARNED if a sample of the array says the cells would be small, and BRANCHLESS if not
+ *
+ * BINARY, BRANCHLESS and LEARNED use the array they're given, so don't change it afterwards. EYTZINGER and BTREE make
+ * their own copy, plus a table mapping positions in the copy back to indexes in the sorted array.
+ *
+ * Comparisons are done with {@code <}, so -0.0 and 0.0 count as equal. NaNs aren't allowed, either in the array or
+ * as a query.
+ */
+public class SortedDoubleIndex {
+
+  public enum Layout { BINARY, BRANCHLESS, EYTZINGER, BTREE, LEARNED, AUTO }
+
+  // Keys per B-tree node: 8 doubles is one 64 byte cache line
+  static final int NODE_KEYS = 8;
+
+  // LEARNED makes one cell per this many elements
+  static final int ELEMENTS_PER_CELL = 2;
+
+  // LEARNED scans cells up to this big, and binary searches bigger ones
+  static final int LINEAR_SEARCH_WINDOW = 8;
+
+  // AUTO only considers LEARNED for arrays this big, looks at this many of their elements, and picks it if a random
+  // element's cell would hold this many elements or fewer, on average. Smaller arrays, like PrintEnclosing's 100
+  // numbers, are only a handful of branchless steps to search, so they get BRANCHLESS
+  static final int AUTO_MIN_SIZE = 256;
+  static final int AUTO_SAMPLE_SIZE = 4096;
+  static final double AUTO_MAX_WINDOW = 8;
+
+  private final double[] sorted;
+  private final Layout layout;
+
+  // EYTZINGER: keys in breadth first order, from index 1, and the sorted index of each
+  private double[] eytzinger;
+  private int[] eytzingerIndex;
+  private int prefetchMask;
+  private double prefetchSink;
+
+  // BTREE: node k's keys are tree[k * NODE_KEYS] ..., its children are nodes k * (NODE_KEYS + 1) + 1 + i
+  private double[] tree;
+  private int[] treeIndex;
+  private int nodes;
+
+  // LEARNED: an element x is in cell (x - min) * scale, and cell c's elements are cellStart[c] ... cellStart[c + 1] - 1
+  private double min, scale;
+  private int[] cellStart;
+
+  /**
+   * Uses the AUTO layout
+   *
+   * @param sorted array to search, in ascending order
+   */
+  public SortedDoubleIndex(double[] sorted) {
+    this(sorted, Layout.AUTO);
+  }
+
+  /**
+   * @param sorted array to search, in ascending order
+   * @param layout how to lay the array out in memory
+   */
+  public SortedDoubleIndex(double[] sorted, Layout layout) {
+    for (int i = 0; i < sorted.length; i++) {
+      if (sorted[i] != sorted[i]) throw new IllegalArgumentException("NaN at index " + i);
+      if (i > 0 && sorted[i] < sorted[i - 1]) throw new IllegalArgumentException("Not sorted at index " + i);
+    }
+
+    if (layout == Layout.AUTO) layout = chooseLayout(sorted);
+
+    this.sorted = sorted;
+    this.layout = layout;
+
+    if (layout == Layout.EYTZINGER) {
+      eytzinger = new double[sorted.length + 1];
+      eytzingerIndex = new int[sorted.length + 1];
+      buildEytzinger(0, 1);
+      prefetchMask = Integer.highestOneBit(eytzinger.length) - 1;
+    } else if (layout == Layout.BTREE) {
+      nodes = (sorted.length + NODE_KEYS - 1) / NODE_KEYS;
+      tree = new double[nodes * NODE_KEYS];
+      treeIndex = new int[nodes * NODE_KEYS];
+      buildTree(0, 0);
+    } else if (layout == Layout.LEARNED) {
+      buildCells();
+    }
+  }
+
+  public int size() {
+    return sorted.length;
+  }
+
+  /**
+   * @return the layout in use, which AUTO will have replaced with the one it picked
+   */
+  public Layout layout() {
+    return layout;
+  }
+
+  /**
+   * @param i index, in sorted order
+   * @return the ith smallest element
+   */
+  public double get(int i) {
+    return sorted[i];
+  }
+
+  /**
+   * @param x value to look for
+   * @return the index of the first element >= x, which is also the number of elements < x. size() if there isn't one
+   */
+  public int lowerBound(double x) {
+    if (x != x) throw new IllegalArgumentException("Can't search for NaN");
+
+    switch (layout) {
+      case BRANCHLESS: return branchlessLowerBound(x);
+      case EYTZINGER:  return eytzingerLowerBound(x);
+      case BTREE:      return treeLowerBound(x);
+      case LEARNED:    return learnedLowerBound(x);
+      default:         return binaryLowerBound(x);
+    }
+  }
+
+  /**
+   * @param x value to look for
+   * @return the index of the first element > x, which is also the number of elements <= x. size() if there isn't one
+   */
+  public int upperBound(double x) {
+    // The first element > x is the first one >= the next double up, except that there's no double above infinity
+    if (x == Double.POSITIVE_INFINITY) return sorted.length;
+    return lowerBound(Math.nextUp(x));
+  }
+
+  /**
+   * @param x value to look for
+   * @return the index of the largest element <= x, or -1 if every element is bigger
+   */
+  public int floor(double x) {
+    return upperBound(x) - 1;
+  }
+
+  /**
+   * @param x value to look for
+   * @return the index of the smallest element >= x, or -1 if every element is smaller
+   */
+  public int ceiling(double x) {
+    int i = lowerBound(x);
+    return i == sorted.length ? -1 : i;
+  }
+
+  /**
+   * lowerBound for a whole batch of queries at once. With BRANCHLESS, groups of queries are searched in lockstep, so
+   * their cache misses overlap instead of waiting on each other one at a time
+   *
+   * @param queries values to look for
+   * @param out out[i] is set to lowerBound(queries[i]), must be at least as long as queries
+   */
+  public void lowerBound(double[] queries, int[] out) {
+    if (out.length < queries.length) throw new IllegalArgumentException("out is shorter than queries");
+
+    int i = 0;
+    if (layout == Layout.BRANCHLESS) {
+      for (; i + 4 <= queries.length; i += 4) {
+        branchlessLowerBound4(queries, out, i);
+      }
+    }
+
+    for (; i < queries.length; i++) {
+      out[i] = lowerBound(queries[i]);
+    }
+  }
+
+  private int binaryLowerBound(double x) {
+    int lo = 0, hi = sorted.length;
+
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (sorted[mid] < x) lo = mid + 1;
+      else hi = mid;
+    }
+
+    return lo;
+  }
+
+  private int branchlessLowerBound(double x) {
+    double[] a = sorted;
+    int n = a.length;
+    if (n == 0) return 0;
+
+    // The answer is always in [base, base + n]. Each step halves n, without a branch the CPU has to guess at
+    int base = 0;
+    while (n > 1) {
+      int half = n >>> 1;
+      base = a[base + half - 1] < x ? base + half : base;
+      n -= half;
+    }
+
+    return a[base] < x ? base + 1 : base;
+  }
+
+  /**
+   * branchlessLowerBound for queries[i] through queries[i + 3], interleaved
+   */
+  private void branchlessLowerBound4(double[] queries, int[] out, int i) {
+    double[] a = sorted;
+    int n = a.length;
+    double x0 = queries[i], x1 = queries[i + 1], x2 = queries[i + 2], x3 = queries[i + 3];
+    if ((x0 != x0) | (x1 != x1) | (x2 != x2) | (x3 != x3)) throw new IllegalArgumentException("Can't search for NaN");
+
+    if (n == 0) {
+      out[i] = out[i + 1] = out[i + 2] = out[i + 3] = 0;
+      return;
+    }
+
+    int b0 = 0, b1 = 0, b2 = 0, b3 = 0;
+    while (n > 1) {
+      int half = n >>> 1;
+      b0 = a[b0 + half - 1] < x0 ? b0 + half : b0;
+      b1 = a[b1 + half - 1] < x1 ? b1 + half : b1;
+      b2 = a[b2 + half - 1] < x2 ? b2 + half : b2;
+      b3 = a[b3 + half - 1] < x3 ? b3 + half : b3;
+      n -= half;
+    }
+
+    out[i] = a[b0] < x0 ? b0 + 1 : b0;
+    out[i + 1] = a[b1] < x1 ? b1 + 1 : b1;
+    out[i + 2] = a[b2] < x2 ? b2 + 1 : b2;
+    out[i + 3] = a[b3] < x3 ? b3 + 1 : b3;
+  }
+
+  private int eytzingerLowerBound(double x) {
+    double[] b = eytzinger;
+    int n = sorted.length;
+
+    // Go left if b[k] >= x, right if it's < x. The answer is the last node we went left at
+    // Java can't prefetch, but it can load: reading the node 4 levels down (where its 16 descendants start, two
+    // cache lines) starts that miss early, and the CPU carries on without waiting for it. The mask keeps the index in
+    // range, past the bottom of the tree it just loads something harmless
+    int mask = prefetchMask;
+    double touched = 0;
+
+    int k = 1;
+    while (k <= n) {
+      touched += b[(16 * k) & mask];
+      k = 2 * k + (b[k] < x ? 1 : 0);
+    }
+    if (touched != touched) prefetchSink = touched;  // only so that the loads can't be optimized away
+
+    // The right turns since then are the trailing 1 bits of k, so drop them (and the left turn before them)
+    k >>>= Integer.numberOfTrailingZeros(~k) + 1;
+
+    return k == 0 ? n : eytzingerIndex[k];
+  }
+
+  /**
+   * Fills in the breadth first copy by walking the tree in order: the ith node visited gets the ith smallest element
+   */
+  private int buildEytzinger(int i, int k) {
+    if (k <= sorted.length) {
+      i = buildEytzinger(i, 2 * k);
+      eytzinger[k] = sorted[i];
+      eytzingerIndex[k] = i++;
+      i = buildEytzinger(i, 2 * k + 1);
+    }
+    return i;
+  }
+
+  private int treeLowerBound(double x) {
+    double[] t = tree;
+    int n = sorted.length;
+    int answer = n;
+
+    // In each node, find the first key >= x. That key is the best answer so far (everything in the child we go down
+    // into next comes before it)
+    int k = 0;
+    while (k < nodes) {
+      int base = k * NODE_KEYS;
+      int i = 0;
+      for (int j = 0; j < NODE_KEYS; j++) {
+        i += t[base + j] < x ? 1 : 0;
+      }
+
+      if (i < NODE_KEYS) answer = treeIndex[base + i];
+      k = k * (NODE_KEYS + 1) + 1 + i;
+    }
+
+    return answer;
+  }
+
+  /**
+   * Same as buildEytzinger, but for the B-tree. The last node is padded out with infinities, which all point past the
+   * end of the array, and since they come after every real element they're never the first key >= x before a real one
+   */
+  private int buildTree(int i, int k) {
+    if (k < nodes) {
+      for (int j = 0; j < NODE_KEYS; j++) {
+        i = buildTree(i, k * (NODE_KEYS + 1) + 1 + j);
+
+        int slot = k * NODE_KEYS + j;
+        if (i < sorted.length) {
+          tree[slot] = sorted[i];
+          treeIndex[slot] = i++;
+        } else {
+          tree[slot] = Double.POSITIVE_INFINITY;
+          treeIndex[slot] = sorted.length;
+        }
+      }
+      i = buildTree(i, k * (NODE_KEYS + 1) + 1 + NODE_KEYS);
+    }
+    return i;
+  }
+
+  /**
+   * Which cell x falls in. Never decreases as x increases, so every element in an earlier cell is < x, and every element
+   * in a later cell is > x
+   */
+  private static int cellOf(double x, double min, double scale, int cells) {
+    int c = (int) ((x - min) * scale);  // NaN (infinity * 0) comes out as 0, and infinities as the int limits
+    return Math.max(0, Math.min(cells - 1, c));
+  }
+
+  private void buildCells() {
+    int n = sorted.length;
+    int cells = Math.max(1, n / ELEMENTS_PER_CELL);
+    min = n == 0 ? 0 : sorted[0];
+    double range = n == 0 ? 0 : sorted[n - 1] - min;
+
+    // A range of 0 or infinity means there's nothing to model: one cell, and it's just a binary search
+    if (range > 0 && range < Double.POSITIVE_INFINITY) {
+      scale = cells / range;
+    } else {
+      cells = 1;
+      scale = 0;
+    }
+
+    // Count each cell's elements, then turn the counts into starting positions
+    cellStart = new int[cells + 1];
+    for (double x : sorted) cellStart[cellOf(x, min, scale, cells) + 1]++;
+    for (int c = 0; c < cells; c++) cellStart[c + 1] += cellStart[c];
+  }
+
+  private int learnedLowerBound(double x) {
+    int[] starts = cellStart;
+    int c = cellOf(x, min, scale, starts.length - 1);
+    int lo = starts[c], hi = starts[c + 1];
+
+    // The answer is in [lo, hi], see cellOf
+    if (hi - lo <= LINEAR_SEARCH_WINDOW) {
+      while (lo < hi && sorted[lo] < x) lo++;
+      return lo;
+    }
+
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (sorted[mid] < x) lo = mid + 1;
+      else hi = mid;
+    }
+    return lo;
+  }
+
+  /**
+   * Takes evenly spaced elements, sorts them into cells the same way LEARNED would, and works out how many elements
+   * share a cell with the average element. Evenly spread data comes out at about ELEMENTS_PER_CELL + 1, data that's
+   * bunched up comes out much higher
+   */
+  static Layout chooseLayout(double[] sorted) {
+    int n = sorted.length;
+    if (n < AUTO_MIN_SIZE) return Layout.BRANCHLESS;
+
+    double min = sorted[0];
+    double range = sorted[n - 1] - min;
+    if (!(range > 0 && range < Double.POSITIVE_INFINITY)) return Layout.BRANCHLESS;
+
+    int samples = Math.min(n, AUTO_SAMPLE_SIZE);
+    int cells = Math.max(1, samples / ELEMENTS_PER_CELL);
+    double scale = cells / range;
+    int[] counts = new int[cells];
+
+    for (int j = 0; j < samples; j++) {
+      counts[cellOf(sorted[(int) ((long) j * n / samples)], min, scale, cells)]++;
+    }
+
+    // Each of a cell's k elements sees a window of k, so the average over elements is sum(k^2) / samples
+    long sumOfSquares = 0;
+    for (int count : counts) sumOfSquares += (long) count * count;
+
+    return (double) sumOfSquares / samples <= AUTO_MAX_WINDOW ? Layout.LEARNED : Layout.BRANCHLESS;
+  }
+}
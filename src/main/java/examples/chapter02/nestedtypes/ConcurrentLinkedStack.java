@@ -0,0 +1,191 @@
+package examples.chapter02.nestedtypes;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicStampedReference;
+
+/**
+ * A LinkedStack that any number of threads can push and pop at once, without locks. Uses the same Linkable nodes, so
+ * nothing extra gets allocated per item, except by the CAS and elimination (see below).
+ *
+ * It's a Treiber stack: push points the new node at the current top, then compare-and-sets top from the old node to
+ * the new one. If another thread got in first the CAS fails, and it tries again with the new top. pop is the same,
+ * swinging top from the current node to its next. Every change to the stack is one CAS on top, which is the moment it
+ * happens, so the stack behaves as if every push and pop happened one at a time, in some order.
+ *
+ * >>> THE ABA PROBLEM <<<
+ *
+ * Nodes belong to the caller, and can be pushed again after they're popped. That breaks a plain CAS on top: a pop
+ * reads top = A and A's next = B, then stalls. Meanwhile another thread pops A, pops B, and pushes A back on top of C.
+ * Top is A again, so the stalled pop's CAS from A to B succeeds, and puts B, which isn't on the stack anymore, back on
+ * top (and loses C). So top is an AtomicStampedReference, whose stamp goes up on every change, and a CAS only works if
+ * the stamp hasn't moved either. Stamps are ints, so it would take 2^32 changes during one stalled pop to fool it. The
+ * price is that AtomicStampedReference allocates a small pair object on every successful CAS.
+ *
+ * >>> ELIMINATION <<<
+ *
+ * When lots of threads hammer the stack, most CASes on top fail, and they all retry on the same memory. So after a
+ * failed CAS, a thread has a go at the elimination array instead: a pusher leaves its node in a random slot and waits
+ * a moment, and a popper looks in a random slot and takes whatever's there. A push and a pop that meet like that
+ * cancel out, without touching top at all. That's still correct, since the pair behaves as if the push happened and
+ * then the pop straight after it. If nobody turns up, the pusher takes its node back and goes back to top.
+ *
+ * The slots have the same ABA problem as top. If a pusher left the node itself in a slot, a popper could take it, push
+ * it again, and have it land in the same slot before the first pusher looked. The first pusher would see its node
+ * still there and take it back, so both pushes would think they'd happened, and one would be lost. So a pusher leaves
+ * a new Offer holding its node instead, and checks for that Offer, which nobody else can put back.
+ */
+public class ConcurrentLinkedStack {
+
+  // How many times a pusher checks whether its node has been taken, before giving up and trying top again
+  private static final int ELIMINATION_SPINS = 1 << 7;
+
+  private final AtomicStampedReference<LinkedStack.Linkable> top = new AtomicStampedReference<>(null, 0);
+  private final AtomicReferenceArray<Offer> elimination;
+
+  public ConcurrentLinkedStack() {
+    this(Math.min(Runtime.getRuntime().availableProcessors(), 16));
+  }
+
+  /**
+   * @param eliminationSlots how many slots pushes and pops can meet in. About the number of threads that will use the
+   *                         stack at once. 0 turns elimination off
+   */
+  public ConcurrentLinkedStack(int eliminationSlots) {
+    if (eliminationSlots < 0)
+      throw new IllegalArgumentException("eliminationSlots must be >= 0, was " + eliminationSlots);
+    elimination = new AtomicReferenceArray<>(eliminationSlots);
+  }
+
+  public boolean isEmpty() {
+    return top.getReference() == null;
+  }
+
+  /**
+   * Add an item to the top of the stack. The node mustn't already be on this stack, or any other
+   *
+   * @param node the item to add
+   */
+  public void push(LinkedStack.Linkable node) {
+    int[] stamp = new int[1];
+
+    while (true) {
+      LinkedStack.Linkable oldTop = top.get(stamp);
+      node.setNext(oldTop);
+      if (top.compareAndSet(oldTop, node, stamp[0], stamp[0] + 1)) return;
+      if (eliminatePush(node)) return;
+    }
+  }
+
+  /**
+   * Removes and returns the item at the top of the stack
+   *
+   * @return the node at the top of the stack
+   * @throws NoSuchElementException if the stack is empty
+   */
+  public LinkedStack.Linkable pop() {
+    LinkedStack.Linkable node = poll();
+    if (node == null) throw new NoSuchElementException("pop on empty stack");
+    return node;
+  }
+
+  /**
+   * Same as pop, but returns null when the stack is empty instead of throwing, which is what a consumer polling the
+   * stack wants
+   *
+   * @return the node that was at the top of the stack, or null if there wasn't one
+   */
+  public LinkedStack.Linkable poll() {
+    int[] stamp = new int[1];
+
+    while (true) {
+      LinkedStack.Linkable oldTop = top.get(stamp);
+      if (oldTop == null) return null;
+
+      if (top.compareAndSet(oldTop, oldTop.getNext(), stamp[0], stamp[0] + 1)) return oldTop;
+
+      LinkedStack.Linkable node = eliminatePop();
+      if (node != null) return node;
+    }
+  }
+
+  /**
+   * @return the node at the top of the stack, which another thread could pop at any moment
+   * @throws NoSuchElementException if the stack is empty
+   */
+  public LinkedStack.Linkable peek() {
+    LinkedStack.Linkable node = top.getReference();
+    if (node == null) throw new NoSuchElementException("peek on empty stack");
+    return node;
+  }
+
+  /**
+   * Get an iterator over the stack, from the top down. Only makes sense when no other thread is pushing or popping:
+   * it just follows the next pointers from whatever was on top when it started, and nodes that are popped (and maybe
+   * pushed again) while it's going will take it somewhere else
+   *
+   * @return an iterator over this stack
+   */
+  public Iterator<LinkedStack.Linkable> iterator() {
+    return new Iterator<LinkedStack.Linkable>() {
+      private LinkedStack.Linkable current = top.getReference();
+
+      public boolean hasNext() {
+        return current != null;
+      }
+
+      public LinkedStack.Linkable next() {
+        if (!hasNext()) throw new NoSuchElementException("no next element");
+
+        LinkedStack.Linkable value = current;
+        current = current.getNext();
+        return value;
+      }
+    };
+  }
+
+  /**
+   * Leaves node in a random empty slot for a popper to take
+   *
+   * @return true if a popper took it, false if nobody came (or the slot wasn't empty), and it should try top again
+   */
+  private boolean eliminatePush(LinkedStack.Linkable node) {
+    if (elimination.length() == 0) return false;
+
+    int slot = ThreadLocalRandom.current().nextInt(elimination.length());
+    Offer offer = new Offer(node);
+    if (!elimination.compareAndSet(slot, null, offer)) return false;
+
+    for (int i = 0; i < ELIMINATION_SPINS; i++) {
+      if (elimination.get(slot) != offer) return true;
+    }
+
+    // Take it back, unless a popper beat us to it
+    return !elimination.compareAndSet(slot, offer, null);
+  }
+
+  /**
+   * @return a node a pusher left in a random slot, or null if there wasn't one
+   */
+  private LinkedStack.Linkable eliminatePop() {
+    if (elimination.length() == 0) return null;
+
+    int slot = ThreadLocalRandom.current().nextInt(elimination.length());
+    Offer offer = elimination.get(slot);
+    return offer != null && elimination.compareAndSet(slot, offer, null) ? offer.node : null;
+  }
+
+  /**
+   * One pusher's one go at the elimination array. Only compared by identity, so it's never mistaken for another go
+   * with the same node
+   */
+  private static final class Offer {
+    final LinkedStack.Linkable node;
+
+    Offer(LinkedStack.Linkable node) {
+      this.node = node;
+    }
+  }
+}
@@ -0,0 +1,205 @@
+package examples.chapter02.nestedtypes;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * A stack of ints, kept in an int[]. LinkedStack needs a LinkableInteger object for every int, and following a pointer
+ * to get to the next one; this needs neither. The array doubles when it's full, so push is O(1) on average, and pop
+ * never has to copy anything.
+ *
+ * The array only gets smaller if the stack was made with shrink on: then whenever a pop leaves it less than a quarter
+ * full, it's halved until it isn't (but never below the starting capacity). Waiting for a quarter, rather than a half,
+ * means a stack that goes up and down around a power of two doesn't copy everything on every push and pop.
+ *
+ * Not thread safe, same as LinkedStack.
+ */
+public class IntStack {
+
+  public static final int DEFAULT_CAPACITY = 16;
+
+  private final int initialCapacity;
+  private final boolean shrink;
+  private int[] elements;
+  private int size;
+
+  // Goes up on every change, so iterators can tell the stack changed under them
+  private int modCount;
+
+  public IntStack() {
+    this(DEFAULT_CAPACITY, false);
+  }
+
+  /**
+   * @param initialCapacity how many ints to make room for to start with, at least 1
+   * @param shrink whether to give memory back when the stack gets small again
+   */
+  public IntStack(int initialCapacity, boolean shrink) {
+    if (initialCapacity < 1) throw new IllegalArgumentException("initialCapacity must be >= 1, was " + initialCapacity);
+
+    this.initialCapacity = initialCapacity;
+    this.shrink = shrink;
+    this.elements = new int[initialCapacity];
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return how many ints fit before the array has to grow
+   */
+  public int capacity() {
+    return elements.length;
+  }
+
+  /**
+   * Add an int to the top of the stack
+   *
+   * @param x the int to add
+   */
+  public void push(int x) {
+    if (size == elements.length) grow(size + 1);
+    elements[size++] = x;
+    modCount++;
+  }
+
+  /**
+   * Pushes xs[0] through xs[xs.length - 1], in that order, so the last one ends up on top. Same as pushing them one at
+   * a time, but grows the array at most once, and copies them all in one go
+   *
+   * @param xs the ints to add
+   */
+  public void pushAll(int[] xs) {
+    pushAll(xs, 0, xs.length);
+  }
+
+  /**
+   * Pushes xs[off] through xs[off + len - 1], in that order
+   *
+   * @param xs the ints to add
+   * @param off the first one to add
+   * @param len how many to add
+   * @throws IndexOutOfBoundsException if off and len don't fit in xs
+   */
+  public void pushAll(int[] xs, int off, int len) {
+    if (off < 0 || len < 0 || len > xs.length - off)
+      throw new IndexOutOfBoundsException("off=" + off + ", len=" + len + " out of range for length " + xs.length);
+    if (len == 0) return;  // nothing changed, so iterators can carry on
+
+    if (len > elements.length - size) grow((long) size + len);
+    System.arraycopy(xs, off, elements, size, len);
+    size += len;
+    modCount++;
+  }
+
+  /**
+   * Removes and returns the int at the top of the stack
+   *
+   * @return the int at the top of the stack
+   * @throws NoSuchElementException if the stack is empty
+   */
+  public int pop() {
+    if (isEmpty()) throw new NoSuchElementException("pop on empty stack");
+
+    int x = elements[--size];
+    modCount++;
+    if (shrink) shrinkIfLow();
+    return x;
+  }
+
+  /**
+   * Pops as many ints as fit in dst, or all of them if there aren't that many. dst[0] gets what was on top, so it's
+   * the same order pop would return them in
+   *
+   * @param dst where to put the popped ints
+   * @return how many were popped
+   */
+  public int popInto(int[] dst) {
+    int n = Math.min(size, dst.length);
+    for (int i = 0; i < n; i++) dst[i] = elements[size - 1 - i];
+
+    if (n > 0) {
+      size -= n;
+      modCount++;
+      if (shrink) shrinkIfLow();
+    }
+    return n;
+  }
+
+  /**
+   * @return the int at the top of the stack
+   * @throws NoSuchElementException if the stack is empty
+   */
+  public int peek() {
+    if (isEmpty()) throw new NoSuchElementException("peek on empty stack");
+    return elements[size - 1];
+  }
+
+  /**
+   * Removes everything. Keeps the array, unless shrink is on, when it goes back to the starting capacity
+   */
+  public void clear() {
+    size = 0;
+    modCount++;
+    if (shrink && elements.length > initialCapacity) elements = new int[initialCapacity];
+  }
+
+  /**
+   * Shrinks the array to exactly fit what's on the stack (or the starting capacity, if that's bigger)
+   */
+  public void trimToSize() {
+    int capacity = Math.max(size, initialCapacity);
+    if (capacity < elements.length) elements = Arrays.copyOf(elements, capacity);
+  }
+
+  /**
+   * Get an iterator over the stack, from the top down. It's fail-fast: pushing or popping while it's in use makes its
+   * next call throw a ConcurrentModificationException, rather than carry on from the wrong place
+   *
+   * @return an iterator over this stack
+   */
+  public PrimitiveIterator.OfInt iterator() {
+    return new IntStackIterator();
+  }
+
+  private void grow(long minCapacity) {
+    // Arrays can't be quite Integer.MAX_VALUE long on most JVMs
+    int maxCapacity = Integer.MAX_VALUE - 8;
+    if (minCapacity > maxCapacity) throw new OutOfMemoryError("IntStack can't hold " + minCapacity + " ints");
+
+    long doubled = 2L * elements.length;
+    elements = Arrays.copyOf(elements, (int) Math.min(maxCapacity, Math.max(doubled, minCapacity)));
+  }
+
+  private void shrinkIfLow() {
+    int capacity = elements.length;
+    while (size < capacity / 4 && capacity / 2 >= initialCapacity) capacity /= 2;
+    if (capacity < elements.length) elements = Arrays.copyOf(elements, capacity);
+  }
+
+  private class IntStackIterator implements PrimitiveIterator.OfInt {
+    private int next = size - 1;
+    private final int expectedModCount = modCount;
+
+    public boolean hasNext() {
+      checkForModification();
+      return next >= 0;
+    }
+
+    public int nextInt() {
+      if (!hasNext()) throw new NoSuchElementException("no next element");
+      return elements[next--];
+    }
+
+    private void checkForModification() {
+      if (modCount != expectedModCount) throw new ConcurrentModificationException("stack changed while iterating");
+    }
+  }
+}
@@ -3,6 +3,10 @@ package examples.chapter02.nestedtypes;
 import java.util.NoSuchElementException;
 import java.util.Iterator;
 
+/**
+ * A stack of Linkable nodes, linked through the nodes themselves. Not thread safe: see ConcurrentLinkedStack for one
+ * that can be shared between threads
+ */
 public class LinkedStack {
 
   /**
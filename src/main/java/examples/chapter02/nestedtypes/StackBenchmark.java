@@ -0,0 +1,178 @@
+package examples.chapter02.nestedtypes;
+
+import examples.chapter01.Benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Measures shared stacks in millions of operations per second, with 1 to 8 threads all pushing and popping at once:
+ * LinkedStack behind a lock, ConcurrentLinkedDeque (which allocates a node of its own per push), and
+ * ConcurrentLinkedStack with and without elimination. Each thread pushes a few of its own nodes, then pops a few, over
+ * and over, so the stack stays small and every thread fights over the top of it.
+ *
+ * Then, on one thread, it compares LinkedStack of LinkableIntegers with IntStack, pushing and popping tens of millions
+ * of ints, in time and bytes allocated per int.
+ *
+ * The rounds and timing come from examples.chapter01.Benchmarks.
+ *
+ * To build and run:
+ *   $ javac -sourcepath src/main/java -d build/manual src/main/java/examples/chapter02/nestedtypes/StackBenchmark.java
+ *   $ java -cp build/manual examples.chapter02.nestedtypes.StackBenchmark
+ */
+public class StackBenchmark {
+
+  private static final int OPS_PER_THREAD = 1 << 21;
+  private static final int BATCH = 4;
+
+  // How many ints the single threaded comparison pushes, and then pops
+  private static final int INTS = 1 << 24;
+
+  /**
+   * The operations the benchmark needs, so every stack can be run by the same loop
+   */
+  interface Stack {
+    void push(LinkableInteger node);
+    LinkableInteger pop();
+  }
+
+  public static void main(String[] args) throws Exception {
+    Benchmarks.rounds(() -> {
+      for (int threads = 1; threads <= 8; threads *= 2) {
+        time("synchronized LinkedStack", threads, () -> {
+          LinkedStack stack = new LinkedStack();
+          return new Stack() {
+            public synchronized void push(LinkableInteger node) {
+              stack.push(node);
+            }
+
+            public synchronized LinkableInteger pop() {
+              return stack.isEmpty() ? null : (LinkableInteger) stack.pop();
+            }
+          };
+        });
+        time("ConcurrentLinkedDeque", threads, () -> {
+          ConcurrentLinkedDeque<LinkableInteger> deque = new ConcurrentLinkedDeque<>();
+          return new Stack() {
+            public void push(LinkableInteger node) {
+              deque.push(node);
+            }
+
+            public LinkableInteger pop() {
+              return deque.pollFirst();
+            }
+          };
+        });
+        time("ConcurrentLinkedStack(0)", threads, () -> concurrent(new ConcurrentLinkedStack(0)));
+        time("ConcurrentLinkedStack", threads, () -> concurrent(new ConcurrentLinkedStack()));
+      }
+    });
+
+    int[] batch = new int[1 << 10];
+    Benchmarks.rounds(() -> {
+      timeInts("LinkedStack", () -> {
+        LinkedStack stack = new LinkedStack();
+        for (int i = 0; i < INTS; i++) stack.push(new LinkableInteger(i));
+        long sum = 0;
+        while (!stack.isEmpty()) sum += ((LinkableInteger) stack.pop()).getValue();
+        return sum;
+      });
+      timeInts("IntStack", () -> {
+        IntStack stack = new IntStack();
+        for (int i = 0; i < INTS; i++) stack.push(i);
+        long sum = 0;
+        while (!stack.isEmpty()) sum += stack.pop();
+        return sum;
+      });
+      timeInts("IntStack pushAll/popInto", () -> {
+        IntStack stack = new IntStack();
+        for (int i = 0; i < INTS; i += batch.length) {
+          for (int j = 0; j < batch.length; j++) batch[j] = i + j;
+          stack.pushAll(batch);
+        }
+        long sum = 0;
+        for (int n; (n = stack.popInto(batch)) > 0; ) {
+          for (int j = 0; j < n; j++) sum += batch[j];
+        }
+        return sum;
+      });
+    });
+  }
+
+  /**
+   * Runs one push everything, then pop everything, pass on this thread
+   */
+  private static void timeInts(String name, LongSupplier pushAndPop) {
+    Benchmarks.time(name, 1, INTS, "int", pushAndPop);
+  }
+
+  private static Stack concurrent(ConcurrentLinkedStack stack) {
+    return new Stack() {
+      public void push(LinkableInteger node) {
+        stack.push(node);
+      }
+
+      public LinkableInteger pop() {
+        return (LinkableInteger) stack.poll();
+      }
+    };
+  }
+
+  /**
+   * Times threads threads pushing and popping a new stack at once. The work is on other threads, so there's no
+   * allocation count
+   */
+  private static void time(String name, int threads, Supplier<Stack> newStack) {
+    Benchmarks.timeThroughput(name + " x" + threads, 1, (long) threads * OPS_PER_THREAD, "op",
+      () -> pushAndPop(threads, newStack.get()));
+  }
+
+  /**
+   * @return the sum of the values each thread ended up holding, as a checksum
+   */
+  private static long pushAndPop(int threads, Stack stack) {
+    AtomicLong check = new AtomicLong();
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> workers = new ArrayList<>();
+
+    for (int t = 0; t < threads; t++) {
+      LinkableInteger[] nodes = new LinkableInteger[BATCH];
+      for (int i = 0; i < BATCH; i++) nodes[i] = new LinkableInteger(i);
+
+      workers.add(new Thread(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          return;
+        }
+
+        // Pops whatever's there, which may be another thread's nodes, so push back what was popped
+        LinkableInteger[] mine = nodes.clone();
+        for (int op = 0; op < OPS_PER_THREAD; op += 2 * BATCH) {
+          for (int i = 0; i < BATCH; i++) stack.push(mine[i]);
+          for (int i = 0; i < BATCH; i++) {
+            LinkableInteger node;
+            while ((node = stack.pop()) == null) Thread.yield();
+            mine[i] = node;
+          }
+        }
+        for (LinkableInteger node : mine) check.addAndGet(node.getValue());
+      }));
+    }
+
+    for (Thread worker : workers) worker.start();
+    start.countDown();
+    try {
+      for (Thread worker : workers) worker.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("interrupted waiting for the workers", e);
+    }
+    return check.get();
+  }
+}
@@ -1,6 +1,17 @@
 package exercises.chapter01;
 
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
 public class FibonacciThreeTerms {
+  // The first 73 terms fit in a long
+  static final int MAX_LONG_TERMS = 73;
 
   /**
    * Calculates a Fibonacci-esque sequence, except each term is the sum of the previous 3 terms, instead of the sum of
@@ -23,4 +34,205 @@ public class FibonacciThreeTerms {
 
     return out;
   }
+
+  /**
+   * The same sequence fibonacci returns, but as longs, generated one term at a time with no boxing and no allocation
+   * per term. Only the first 73 terms fit in a long, so hasNext is false after the 73rd, rather than nextLong wrapping
+   * around
+   *
+   * @return an iterator over the first 73 terms
+   */
+  public static PrimitiveIterator.OfLong iterator() {
+    return new PrimitiveIterator.OfLong() {
+      // The three terms before the first, chosen so that the sums come out 1, 1, 2, ...
+      long t1 = 1, t2 = 0, t3 = 0;
+      int terms;
+
+      @Override
+      public boolean hasNext() {
+        return terms < MAX_LONG_TERMS;
+      }
+
+      @Override
+      public long nextLong() {
+        if (!hasNext()) throw new NoSuchElementException("only " + MAX_LONG_TERMS + " terms fit in a long");
+
+        terms++;
+        long next = t1 + t2 + t3;
+        t1 = t2;
+        t2 = t3;
+        t3 = next;
+        return next;
+      }
+    };
+  }
+
+  /**
+   * @return iterator() as a stream of exactly 73 terms, use limit() to take fewer
+   */
+  public static LongStream stream() {
+    int characteristics = Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE;
+    return StreamSupport.longStream(Spliterators.spliterator(iterator(), MAX_LONG_TERMS, characteristics), false);
+  }
+
+  /**
+   * Writes the first len terms into a buffer the caller already has
+   *
+   * @param dest buffer to fill
+   * @param off where in dest to write the first term
+   * @param len how many terms to write
+   * @throws ArithmeticException if len > 73, since the terms no longer fit in a long
+   */
+  public static void fill(long[] dest, int off, int len) {
+    if (off < 0 || len < 0 || len > dest.length - off)
+      throw new IllegalArgumentException("off=" + off + ", len=" + len + " out of range for length " + dest.length);
+    if (len > MAX_LONG_TERMS) throw new ArithmeticException("long overflow; only " + MAX_LONG_TERMS + " terms fit");
+
+    long t1 = 1, t2 = 0, t3 = 0;
+    for (int i = off; i < off + len; i++) {
+      dest[i] = t1 + t2 + t3;
+      t1 = t2;
+      t2 = t3;
+      t3 = dest[i];
+    }
+  }
+
+  /**
+   * A single term of the sequence fibonacci returns, counting from 0, so term(n) is fibonacci(n + 1)[n]
+   *
+   * @param n index of the term
+   * @return the term
+   */
+  public static BigInteger term(long n) {
+    return kStepTerm(3, n);
+  }
+
+  /**
+   * A single term of the k-step version of the sequence: each term is the sum of the previous k, starting from a single
+   * 1 (with any terms before that counting as 0). So k = 2 is the Fibonacci sequence 1, 1, 2, 3, 5, ..., and k = 3 is
+   * the sequence fibonacci returns, 1, 1, 2, 4, 7, ...
+   *
+   * Rather than stepping through every term, this works with polynomials mod the recurrence's characteristic
+   * polynomial, x^k - x^(k-1) - ... - x - 1. If x^N = c_0 + c_1*x + ... + c_(k-1)*x^(k-1) mod that polynomial, then
+   * term N is the same combination of the first k terms. Raising x to the Nth power by repeated squaring takes O(log N)
+   * steps of O(k^2) each (compared to O(k^3) for the k-by-k matrix power).
+   *
+   * @param k how many previous terms each term is the sum of
+   * @param n index of the term, counting from 0
+   * @return the term
+   */
+  public static BigInteger kStepTerm(int k, long n) {
+    checkArgs(k, n);
+
+    // Counting the k - 1 leading zeros, the sequence starts 0, ..., 0, 1. So term N is just c_(k-1)
+    BigInteger[] result = new BigInteger[k];
+    Arrays.fill(result, BigInteger.ZERO);
+    result[0] = BigInteger.ONE;
+
+    long power = n + k - 1;
+    for (int bit = 63 - Long.numberOfLeadingZeros(Math.max(power, 1)); bit >= 0; bit--) {
+      result = multiply(result, result);
+      if (((power >>> bit) & 1) != 0) result = timesX(result);
+    }
+
+    return result[k - 1];
+  }
+
+  /**
+   * Same as kStepTerm, but mod m, so every coefficient stays a long
+   *
+   * @param k how many previous terms each term is the sum of
+   * @param n index of the term, counting from 0
+   * @param m the modulus, must be <= 3037000499 so that products of two coefficients fit in a long
+   * @return the term, mod m
+   */
+  public static long kStepTermMod(int k, long n, long m) {
+    checkArgs(k, n);
+    if (m < 1 || m > 3037000499L) throw new IllegalArgumentException("m must be between 1 and 3037000499, was " + m);
+
+    long[] result = new long[k];
+    result[0] = 1 % m;
+
+    long power = n + k - 1;
+    for (int bit = 63 - Long.numberOfLeadingZeros(Math.max(power, 1)); bit >= 0; bit--) {
+      result = multiply(result, result, m);
+      if (((power >>> bit) & 1) != 0) result = timesX(result, m);
+    }
+
+    return result[k - 1];
+  }
+
+  private static void checkArgs(int k, long n) {
+    if (k < 1) throw new IllegalArgumentException("k must be >= 1, was " + k);
+    if (n < 0) throw new IllegalArgumentException("n must not be negative");
+  }
+
+  /**
+   * Product of two polynomials (coefficients lowest power first), reduced using x^k = x^(k-1) + ... + x + 1
+   */
+  private static BigInteger[] multiply(BigInteger[] p, BigInteger[] q) {
+    int k = p.length;
+    BigInteger[] product = new BigInteger[2 * k - 1];
+    Arrays.fill(product, BigInteger.ZERO);
+
+    for (int i = 0; i < k; i++) {
+      if (p[i].signum() == 0) continue;
+      for (int j = 0; j < k; j++) {
+        product[i + j] = product[i + j].add(p[i].multiply(q[j]));
+      }
+    }
+
+    // Working down from the top, x^d = x^(d-k) * x^k = x^(d-1) + ... + x^(d-k)
+    for (int d = 2 * k - 2; d >= k; d--) {
+      for (int j = 1; j <= k; j++) {
+        product[d - j] = product[d - j].add(product[d]);
+      }
+    }
+
+    return Arrays.copyOf(product, k);
+  }
+
+  private static BigInteger[] timesX(BigInteger[] p) {
+    int k = p.length;
+    BigInteger top = p[k - 1];
+    BigInteger[] out = new BigInteger[k];
+
+    for (int i = k - 1; i >= 0; i--) {
+      out[i] = (i > 0 ? p[i - 1] : BigInteger.ZERO).add(top);
+    }
+
+    return out;
+  }
+
+  private static long[] multiply(long[] p, long[] q, long m) {
+    int k = p.length;
+    long[] product = new long[2 * k - 1];
+
+    for (int i = 0; i < k; i++) {
+      if (p[i] == 0) continue;
+      for (int j = 0; j < k; j++) {
+        product[i + j] = (product[i + j] + p[i] * q[j]) % m;
+      }
+    }
+
+    for (int d = 2 * k - 2; d >= k; d--) {
+      for (int j = 1; j <= k; j++) {
+        product[d - j] = (product[d - j] + product[d]) % m;
+      }
+    }
+
+    return Arrays.copyOf(product, k);
+  }
+
+  private static long[] timesX(long[] p, long m) {
+    int k = p.length;
+    long top = p[k - 1];
+    long[] out = new long[k];
+
+    for (int i = k - 1; i >= 0; i--) {
+      out[i] = ((i > 0 ? p[i - 1] : 0) + top) % m;
+    }
+
+    return out;
+  }
 }
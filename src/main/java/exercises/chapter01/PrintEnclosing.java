@@ -1,5 +1,7 @@
 package exercises.chapter01;
 
+import examples.chapter01.SortedDoubleIndex;
+
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
@@ -17,6 +19,7 @@ public class PrintEnclosing {
   public static void main(String[] args) {
     int size = 100;
     double[] nums = sorted(getNums(size));
+    SortedDoubleIndex index = new SortedDoubleIndex(nums);
     BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
 
     System.out.println("Choose a number between " + nums[0] + " and " + nums[nums.length - 1]);
@@ -33,15 +36,29 @@ public class PrintEnclosing {
         if (input == null || input.equals("quit")) {
           break;
         } else {
-          double num = Double.parseDouble(input);
-          int elemsBelow = elemsBelowTarget(num, nums);
+          double num;
+          try {
+            num = Double.parseDouble(input);
+          } catch (NumberFormatException e) {
+            System.out.println(input + " isn't a number");
+            continue;
+          }
+
+          // NaN parses fine, but it isn't above or below anything, so the index can't place it
+          if (Double.isNaN(num)) {
+            System.out.println("NaN isn't between any two numbers, choose a real one");
+            continue;
+          }
 
-          if (elemsBelow == 0) {
+          int elemsBelow = index.lowerBound(num);
+
+          if (elemsBelow < nums.length && nums[elemsBelow] == num) {
+            System.out.println(num + " is one of the elements");
+          } else if (elemsBelow == 0) {
             System.out.println(num + " is below all other elements");
           } else if (elemsBelow == nums.length) {
             System.out.println(num + " is above all other elements");
           } else {
-            // TODO: buggy
             System.out.println(nums[elemsBelow - 1] + " < " + num + " < " + nums[elemsBelow]);
           }
         }
@@ -63,26 +80,6 @@ public class PrintEnclosing {
     return nums;
   }
 
-  // TODO: buggy
-  private static int elemsBelowTarget(double target, double[] searchSpace) {
-    int left = 0;
-    int right = searchSpace.length - 1;
-    int middle;
-
-    while (left < right) {
-      middle = middle(left, right);
-      double middleVal = searchSpace[middle];
-
-      if (target < middleVal) {
-        right = middle - 1;
-      } else {
-        left = middle + 1;
-      }
-    }
-
-    return left;
-  }
-
   private static double[] sorted(double[] ds) {
     double[] out = new double[ds.length];
     System.arraycopy(ds, 0, out, 0, ds.length);
@@ -90,8 +87,4 @@ public class PrintEnclosing {
 
     return out;
   }
-
-  private static int middle(int left, int right) {
-    return (int) Math.floor((right + left) / 2.0);
-  }
 }
@@ -1,5 +1,8 @@
 package exercises.chapter01;
 
+import examples.chapter01.ChannelPipeline;
+import examples.chapter01.Reverse;
+
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
@@ -8,10 +11,21 @@ import java.io.InputStreamReader;
  * To build and run:
  *   $ javac -sourcepath src/main/java -d build/manual src/main/java/exercises/chapter01/Reverser.java
  *   $ java -cp build/manual exercises.chapter01.Reverser
+ *
+ * Or, to reverse every line of a file, with no prompts (see ChannelPipeline):
+ *   $ java -cp build/manual exercises.chapter01.Reverser --batch < in.txt > out.txt
  */
 public class Reverser {
 
-  public static void main(String[] args) {
+  public static void main(String[] args) throws IOException {
+    if (args.length > 0 && args[0].equals("--batch")) {
+      ChannelPipeline.transformLines(ChannelPipeline.stdin(), ChannelPipeline.stdout(), (buf, off, len, out) -> {
+        Reverse.reverseUtf8(buf, off, len);
+        out.write(buf, off, len);
+      });
+      return;
+    }
+
     System.out.println("Starting Reverser. Enter strings to reverse, or type tiuq to quit.");
 
     BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
@@ -28,8 +42,7 @@ public class Reverser {
         if (line == null || line.equals("tiuq")) {
           break;
         } else {
-          StringBuilder sb = new StringBuilder(line);
-          System.out.println(sb.reverse());
+          System.out.println(Reverse.reverse(line));
         }
       }
       catch (IOException e) {
@@ -0,0 +1,68 @@
+package examples.chapter01;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+public class ChannelPipelineTest {
+
+  @Test
+  public void transformChunksShouldRot13Everything() throws IOException {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 300_000; i++) sb.append((char) ('a' + i % 26)).append(i % 80 == 0 ? "\n" : "");
+    String text = sb.toString();
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ChannelPipeline.transformChunks(in(text), Channels.newChannel(bytes), Rot13::rot13);
+
+    StringBuilder expected = new StringBuilder();
+    for (char c : text.toCharArray()) expected.append(Rot13.rot13(c));
+    assertEquals(expected.toString(), new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void transformLinesShouldReverseEachLine() throws IOException {
+    StringBuilder longLine = new StringBuilder();
+    for (int i = 0; i < 100; i++) longLine.append("line ").append(i).append(' ');
+
+    String text = "hello\nworld\r\n\n\u00e9t\u00e9 \u65e5\u672c \ud83d\ude00!\n" + longLine + "\nno newline";
+    StringBuilder expected = new StringBuilder();
+    for (String line : text.split("\n", -1)) {
+      boolean crlf = line.endsWith("\r");
+      if (crlf) line = line.substring(0, line.length() - 1);
+      expected.append(new StringBuilder(line).reverse()).append(crlf ? "\r\n" : "\n");
+    }
+    expected.setLength(expected.length() - 1);
+
+    // A tiny buffer, so lines cross chunk boundaries and the long one makes it grow
+    for (int chunk : new int[]{16, 64, ChannelPipeline.CHUNK_BYTES}) {
+      assertEquals("chunk=" + chunk, expected.toString(), run(text, chunk, (buf, off, len, out) -> {
+        Reverse.reverseUtf8(buf, off, len);
+        out.write(buf, off, len);
+      }));
+    }
+  }
+
+  @Test
+  public void factorialQuoterShouldAnswerEachLine() throws IOException {
+    assertEquals("5! = 120\nInvalid input\n0! = 1\nInvalid input\nInvalid input\n20! = 2432902008176640000",
+      run("5\nfive\n0\n-3\n99999999999\n20", 8, FactorialQuoter::quote));
+  }
+
+  private static String run(String text, int chunk, ChannelPipeline.LineTransform transform) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ChannelPipeline.transformLines(in(text), Channels.newChannel(bytes), transform, chunk);
+    return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  private static ReadableByteChannel in(String text) {
+    return Channels.newChannel(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+  }
+}
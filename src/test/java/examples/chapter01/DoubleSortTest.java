@@ -0,0 +1,134 @@
+package examples.chapter01;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class DoubleSortTest {
+
+  private static final double[] SPECIALS = {
+    Double.NaN, -0.0, 0.0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.MIN_VALUE, -Double.MIN_VALUE,
+    Double.MAX_VALUE, -Double.MAX_VALUE, Double.longBitsToDouble(0xfff8000000000001L)  // a NaN with the sign bit set
+  };
+
+  @Test
+  public void sortShouldMatchArraysSort() {
+    Random rng = new Random(12);
+
+    for (int n : new int[]{0, 1, 2, 3, 31, 32, 33, 100, 1000, DoubleSort.RADIX_SORT_THRESHOLD - 1,
+                           DoubleSort.RADIX_SORT_THRESHOLD, 100_000}) {
+      double[] input = randomWithSpecials(rng, n);
+
+      check(input, DoubleSort::sort);
+      check(input, a -> DoubleSort.introSort(a, 0, a.length));
+      check(input, a -> DoubleSort.radixSort(a, 0, a.length));
+    }
+  }
+
+  @Test
+  public void sortShouldHandleAwkwardInputs() {
+    int n = 20_000;
+    double[] sorted = new double[n], reversed = new double[n], equal = new double[n], organPipe = new double[n],
+      fewValues = new double[n], zeros = new double[n];
+    Random rng = new Random(3);
+
+    for (int i = 0; i < n; i++) {
+      sorted[i] = i;
+      reversed[i] = n - i;
+      equal[i] = 42;
+      organPipe[i] = Math.min(i, n - i);
+      fewValues[i] = rng.nextInt(4);
+      zeros[i] = rng.nextBoolean() ? 0.0 : -0.0;
+    }
+
+    for (double[] input : new double[][]{sorted, reversed, equal, organPipe, fewValues, zeros}) {
+      check(input, a -> DoubleSort.introSort(a, 0, a.length));
+      check(input, a -> DoubleSort.radixSort(a, 0, a.length));
+    }
+  }
+
+  @Test
+  public void parallelSortShouldMatchArraysSort() {
+    ForkJoinPool pool = new ForkJoinPool(4);
+    Random rng = new Random(8);
+
+    try {
+      for (int n : new int[]{1000, DoubleSort.PARALLEL_THRESHOLD, 1_000_003}) {
+        check(randomWithSpecials(rng, n), a -> DoubleSort.parallelSort(a, pool));
+      }
+
+      // Lots of duplicates and zeros, which all have to end up on the right side of every split
+      double[] fewValues = new double[500_000];
+      for (int i = 0; i < fewValues.length; i++) fewValues[i] = SPECIALS[rng.nextInt(3)] + rng.nextInt(3) - 1;
+      check(fewValues, a -> DoubleSort.parallelSort(a, pool));
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void sortShouldOnlyTouchTheRange() {
+    double[] a = randomWithSpecials(new Random(5), 500);
+    double[] expected = a.clone();
+    Arrays.sort(expected, 100, 400);
+
+    DoubleSort.sort(a, 100, 400);
+    assertArrayEquals(bits(expected), bits(a));
+  }
+
+  @Test
+  public void keysShouldRoundTrip() {
+    for (double d : SPECIALS) {
+      if (d != d) continue;
+      assertEquals(Double.doubleToRawLongBits(d), Double.doubleToRawLongBits(DoubleSort.fromKey(DoubleSort.toKey(d))));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void sortShouldThrowOnBadRange() {
+    DoubleSort.sort(new double[10], 5, 11);
+  }
+
+  private interface Sorter {
+    void sort(double[] a);
+  }
+
+  private static void check(double[] input, Sorter sorter) {
+    double[] expected = input.clone();
+    Arrays.sort(expected);
+
+    double[] actual = input.clone();
+    sorter.sort(actual);
+
+    assertArrayEquals("n=" + input.length, bits(expected), bits(actual));
+  }
+
+  private static double[] randomWithSpecials(Random rng, int n) {
+    double[] a = new double[n];
+
+    for (int i = 0; i < n; i++) {
+      switch (rng.nextInt(4)) {
+        case 0: a[i] = SPECIALS[rng.nextInt(SPECIALS.length)]; break;
+        case 1: a[i] = rng.nextInt(10) - 5; break;
+        case 2: a[i] = Double.longBitsToDouble(rng.nextLong()); break;
+        default: a[i] = rng.nextGaussian() * 1e6;
+      }
+    }
+
+    return a;
+  }
+
+  /**
+   * Compares by Double.doubleToLongBits, so -0.0 != 0.0 but every NaN matches every other NaN
+   */
+  private static long[] bits(double[] a) {
+    long[] out = new long[a.length];
+    for (int i = 0; i < a.length; i++) out[i] = Double.doubleToLongBits(a[i]);
+    return out;
+  }
+}
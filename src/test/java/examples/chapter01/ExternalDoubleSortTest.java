@@ -0,0 +1,89 @@
+package examples.chapter01;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class ExternalDoubleSortTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void sortShouldMatchArraysSort() throws IOException {
+    Random rng = new Random(4);
+    double[] specials = {Double.NaN, -0.0, 0.0, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY};
+    double[] input = new double[100_003];
+    for (int i = 0; i < input.length; i++) {
+      input[i] = rng.nextInt(10) == 0 ? specials[rng.nextInt(specials.length)] : rng.nextGaussian();
+    }
+
+    // 101 runs, merged 4 at a time: 101 -> 26 -> 7 -> 2 -> 1
+    ExternalDoubleSort.Stats stats = check(input, new ExternalDoubleSort(1000, 4, folder.newFolder().toPath()));
+    assertEquals(101, stats.runs);
+    assertEquals(4, stats.mergePasses);
+    assertEquals(8L * input.length, stats.bytes);
+  }
+
+  @Test
+  public void sortShouldHandleOneRunAndNoRuns() throws IOException {
+    check(new Random(2).doubles(5000).toArray(), new ExternalDoubleSort(10_000, 2, folder.newFolder().toPath()));
+    check(new double[0], new ExternalDoubleSort(10_000, 2, folder.newFolder().toPath()));
+  }
+
+  @Test
+  public void sortShouldCleanUpItsRuns() throws IOException {
+    Path tempDir = folder.newFolder().toPath();
+    check(new Random(3).doubles(10_000).toArray(), new ExternalDoubleSort(100, 8, tempDir));
+
+    assertEquals(0, tempDir.toFile().list().length);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void sortShouldRejectPartialDoubles() throws IOException {
+    Path in = folder.newFile().toPath();
+    Files.write(in, new byte[12]);
+
+    new ExternalDoubleSort(100, 2, folder.getRoot().toPath()).sort(in, folder.newFile().toPath());
+  }
+
+  private ExternalDoubleSort.Stats check(double[] input, ExternalDoubleSort sorter) throws IOException {
+    Path in = folder.newFile().toPath();
+    Path out = folder.newFile().toPath();
+
+    try (DataOutputStream data = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(in)))) {
+      for (double d : input) data.writeDouble(d);
+    }
+
+    ExternalDoubleSort.Stats stats = sorter.sort(in, out);
+
+    double[] expected = input.clone();
+    Arrays.sort(expected);
+    double[] actual = new double[input.length];
+    try (DataInputStream data = new DataInputStream(Files.newInputStream(out))) {
+      for (int i = 0; i < actual.length; i++) actual[i] = data.readDouble();
+      assertEquals("no trailing bytes", -1, data.read());
+    }
+
+    assertArrayEquals(bits(expected), bits(actual));
+    return stats;
+  }
+
+  private static long[] bits(double[] a) {
+    long[] out = new long[a.length];
+    for (int i = 0; i < a.length; i++) out[i] = Double.doubleToLongBits(a[i]);
+    return out;
+  }
+}
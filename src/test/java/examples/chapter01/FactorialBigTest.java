@@ -3,9 +3,15 @@ package examples.chapter01;
 import org.junit.Test;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static examples.chapter01.FactorialBig.factorial;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class FactorialBigTest {
 
@@ -25,6 +31,64 @@ public class FactorialBigTest {
     );
   }
 
+  @Test
+  public void factorialShouldAgreeWithTheIterativeProductAboveTheCrossover() {
+    BigInteger expected = BigInteger.ONE;
+
+    for (int n = 1; n <= 3000; n++) {
+      expected = expected.multiply(BigInteger.valueOf(n));
+      if (n % 97 == 0 || Math.abs(n - FactorialBig.CROSSOVER) <= 2) {
+        assertEquals("factorial(" + n + ")", expected, factorial(n));
+      }
+    }
+  }
+
+  @Test
+  public void factorialShouldHandleLargeArguments() {
+    // Wilson's theorem: (p - 1)! = -1 mod p, for prime p
+    long p = Primes.nextPrime(100_000);
+    BigInteger fact = factorial((int) p - 1);
+
+    assertEquals("factorial(" + (p - 1) + ") mod " + p, BigInteger.valueOf(p - 1), fact.mod(BigInteger.valueOf(p)));
+  }
+
+  @Test
+  public void factorialShouldBeSafeToCallFromManyThreads() throws Exception {
+    BigInteger[] expected = new BigInteger[FactorialBig.CROSSOVER + 1];
+    expected[0] = BigInteger.ONE;
+    for (int n = 1; n < expected.length; n++) expected[n] = expected[n - 1].multiply(BigInteger.valueOf(n));
+
+    FactorialBig.table = new BigInteger[]{BigInteger.ONE};  // start empty, so the threads race to grow it
+    ExecutorService pool = Executors.newFixedThreadPool(8);
+
+    try {
+      List<Future<?>> results = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        int seed = t;
+        results.add(pool.submit(() -> {
+          for (int i = 0; i < 20_000; i++) {
+            int n = (seed * 7919 + i * 31) % expected.length;
+            assertEquals("factorial(" + n + ")", expected[n], factorial(n));
+          }
+        }));
+      }
+
+      for (Future<?> result : results) result.get();
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void factorialJustAboveTheCrossoverShouldCheckpointAboveZero() {
+    FactorialCheckpoints cache =
+      new FactorialCheckpoints(FactorialBig.CHECKPOINT_BUDGET_BYTES, FactorialBig.CHECKPOINT_INTERVAL);
+    cache.factorial(FactorialBig.CROSSOVER + 1);
+
+    // A checkpoint at 0! would take next to nothing, so this means later calls have something to start from
+    assertTrue("usedBytes=" + cache.usedBytes(), cache.usedBytes() > factorial(FactorialBig.CROSSOVER).bitLength() / 8);
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void factorialShouldThrowBelowZero() {
     factorial(-1);
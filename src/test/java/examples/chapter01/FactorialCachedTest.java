@@ -2,7 +2,15 @@ package examples.chapter01;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import static examples.chapter01.FactorialCached.factorial;
+import static examples.chapter01.FactorialCached.factorialLazy;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.*;
 
@@ -22,12 +30,53 @@ public class FactorialCachedTest {
   public void factorialShouldCacheValues() {
     FactorialCached fact = spy(new FactorialCached());
 
-    assertEquals("factorial(4)", 24, fact.factorial(4));
-    assertEquals("factorial(4)", 24, fact.factorial(4));
+    assertEquals("factorialLazy(4)", 24, fact.factorialLazy(4));
+    assertEquals("factorialLazy(4)", 24, fact.factorialLazy(4));
 
     verify(fact, times(1)).computeAndCache(4);
   }
 
+  @Test
+  public void factorialLazyShouldComputeFactorials() {
+    for (int x = 20; x >= 0; x--) {
+      assertEquals("factorialLazy(" + x + ")", Factorial.factorial(x), factorialLazy(x));
+    }
+  }
+
+  @Test
+  public void factorialLazyShouldBeSafeToCallFromManyThreads() throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(8);
+
+    try {
+      for (int round = 0; round < 200; round++) {
+        // Start from an empty cache every round, and release all the threads at once so they race to fill it
+        FactorialCached.table = new long[21];
+        FactorialCached.table[0] = 1;
+        FactorialCached.last = 0;
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+
+        for (int t = 0; t < 8; t++) {
+          int seed = t;
+          results.add(pool.submit(() -> {
+            start.await();
+            for (int i = 0; i < 100; i++) {
+              int x = (seed * 7 + i * 13) % 21;
+              assertEquals("factorialLazy(" + x + ")", Factorial.factorial(x), factorialLazy(x));
+            }
+            return null;
+          }));
+        }
+
+        start.countDown();
+        for (Future<?> result : results) result.get();
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void factorialShouldThrowBelowZero() {
     factorial(-1);
@@ -38,4 +87,9 @@ public class FactorialCachedTest {
     factorial(21);
   }
 
+  @Test(expected = IllegalArgumentException.class)
+  public void factorialLazyShouldThrowAbove20() {
+    factorialLazy(21);
+  }
+
 }
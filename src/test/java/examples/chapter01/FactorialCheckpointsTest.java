@@ -0,0 +1,83 @@
+package examples.chapter01;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FactorialCheckpointsTest {
+
+  @Test
+  public void factorialShouldComputeFactorials() {
+    FactorialCheckpoints cache = new FactorialCheckpoints(1L << 20, 100);
+    BigInteger expected = BigInteger.ONE;
+
+    for (int n = 0; n <= 1500; n++) {
+      if (n > 0) expected = expected.multiply(BigInteger.valueOf(n));
+      if (n % 37 == 0 || n % 100 == 0) assertEquals("factorial(" + n + ")", expected, cache.factorial(n));
+    }
+  }
+
+  @Test
+  public void factorialShouldReuseCheckpoints() {
+    FactorialCheckpoints cache = new FactorialCheckpoints(1L << 20, 100);
+
+    cache.factorial(1050);
+    assertEquals("misses", 1, cache.misses());
+    assertEquals("checkpoints", 1, cache.size());
+
+    // Same checkpoint (1000), so these are hits
+    cache.factorial(1000);
+    cache.factorial(1099);
+    assertEquals("hits", 2, cache.hits());
+    assertEquals("misses", 1, cache.misses());
+
+    // New checkpoint, built from the one at 1000
+    assertEquals(FactorialBig.splitFactorial(1234), cache.factorial(1234));
+    assertEquals("misses", 2, cache.misses());
+    assertEquals("checkpoints", 2, cache.size());
+  }
+
+  @Test
+  public void checkpointsShouldBeEvictedWhenOverBudget() {
+    // Enough room for the checkpoints at 2000 and 3000, but not for all three
+    long budget = sizeOf(2000) + sizeOf(3000);
+    FactorialCheckpoints cache = new FactorialCheckpoints(budget, 1000);
+
+    cache.factorial(2000);
+    cache.factorial(1000);
+    cache.factorial(3000);  // built from 2000, which makes 1000 the least recently used
+
+    assertEquals("evictions", 1, cache.evictions());
+    assertTrue("under budget", cache.usedBytes() <= budget);
+
+    long misses = cache.misses();
+    cache.factorial(2000);
+    assertEquals("2000 was kept", misses, cache.misses());
+    cache.factorial(1000);
+    assertEquals("1000 was evicted", misses + 1, cache.misses());
+  }
+
+  @Test
+  public void shrinkingTheBudgetShouldEvict() {
+    FactorialCheckpoints cache = new FactorialCheckpoints(1L << 20, 100);
+    cache.factorial(500);
+    cache.factorial(900);
+
+    cache.setBudgetBytes(0);
+    assertEquals("checkpoints", 0, cache.size());
+    assertEquals("usedBytes", 0, cache.usedBytes());
+    assertEquals("evictions", 2, cache.evictions());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void factorialShouldThrowBelowZero() {
+    new FactorialCheckpoints(1000, 10).factorial(-1);
+  }
+
+  private static long sizeOf(int n) {
+    return FactorialBig.splitFactorial(n).bitLength() / 8 + 128;
+  }
+}
@@ -2,11 +2,21 @@ package examples.chapter01;
 
 import org.junit.Test;
 
+import java.math.BigInteger;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
 
 import static examples.chapter01.Fibonacci.fibonacci;
+import static examples.chapter01.Fibonacci.fibonacciTerm;
+import static examples.chapter01.Fibonacci.fibonacciTermBig;
+import static examples.chapter01.Fibonacci.fibonacciTermMod;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class FibonacciTest {
 
@@ -24,4 +34,104 @@ public class FibonacciTest {
   public void fibonacciShouldThrowBelowZero() {
     fibonacci(-1);
   }
+
+  @Test
+  public void fibonacciTermShouldMatchTheSequence() {
+    List<Integer> fib = fibonacci(46);  // F(46) is the last one that fits in an int
+
+    assertEquals(0, fibonacciTerm(0));
+    for (int n = 1; n <= fib.size(); n++) {
+      assertEquals("F(" + n + ")", (long) fib.get(n - 1), fibonacciTerm(n));
+    }
+  }
+
+  @Test
+  public void fibonacciTermShouldWorkUpToTheLargestLong() {
+    assertEquals(7540113804746346429L, fibonacciTerm(92));
+    assertEquals(fibonacciTerm(90) + fibonacciTerm(91), fibonacciTerm(92));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void fibonacciTermShouldThrowOnOverflow() {
+    fibonacciTerm(93);
+  }
+
+  @Test
+  public void fibonacciTermBigShouldMatchIteration() {
+    BigInteger a = BigInteger.ZERO, b = BigInteger.ONE;
+
+    for (int n = 0; n <= 2000; n++) {
+      assertEquals("F(" + n + ")", a, fibonacciTermBig(n));
+      BigInteger next = a.add(b);
+      a = b;
+      b = next;
+    }
+  }
+
+  @Test
+  public void fibonacciTermModShouldMatchBig() {
+    long[] moduli = {1, 2, 10, 1_000_000_007L, 3037000499L, 3037000500L, Long.MAX_VALUE - 24};
+
+    for (long m : moduli) {
+      for (int n : new int[]{0, 1, 2, 92, 93, 1000, 12345}) {
+        long expected = fibonacciTermBig(n).mod(BigInteger.valueOf(m)).longValue();
+        assertEquals("F(" + n + ") mod " + m, expected, fibonacciTermMod(n, m));
+      }
+    }
+  }
+
+  @Test
+  public void fibonacciTermModShouldHandleHugeN() {
+    // The Pisano period for 10 is 60, so F(n) mod 10 repeats every 60 terms
+    assertEquals(fibonacciTermMod(Long.MAX_VALUE % 60, 10), fibonacciTermMod(Long.MAX_VALUE, 10));
+  }
+
+  @Test
+  public void iteratorShouldMatchFibonacci() {
+    PrimitiveIterator.OfLong it = Fibonacci.iterator();
+
+    for (int x : fibonacci(46)) {
+      assertEquals(x, it.nextLong());
+    }
+  }
+
+  @Test
+  public void iteratorShouldEndAtTheLastTermThatFits() {
+    PrimitiveIterator.OfLong it = Fibonacci.iterator();
+    for (int n = 1; n < 92; n++) it.nextLong();
+    assertTrue(it.hasNext());
+    assertEquals(fibonacciTerm(92), it.nextLong());
+    assertFalse(it.hasNext());
+
+    try {
+      it.nextLong();
+      throw new AssertionError("F(93) doesn't fit");
+    } catch (NoSuchElementException expected) {
+      // expected
+    }
+  }
+
+  @Test
+  public void streamShouldEndWithoutALimit() {
+    assertEquals(92, Fibonacci.stream().count());
+    assertEquals(fibonacciTerm(92), Fibonacci.stream().max().getAsLong());
+  }
+
+  @Test
+  public void streamAndFillShouldMatchIterator() {
+    long[] expected = new long[92];
+    PrimitiveIterator.OfLong it = Fibonacci.iterator();
+    for (int i = 0; i < expected.length; i++) expected[i] = it.nextLong();
+
+    assertArrayEquals(expected, Fibonacci.stream().limit(92).toArray());
+
+    long[] filled = new long[94];
+    Fibonacci.fill(filled, 2, 92);
+    assertArrayEquals(expected, Arrays.copyOfRange(filled, 2, 94));
+  }
+
+  @Test(expected = ArithmeticException.class)
+  public void fillShouldThrowOnOverflow() {
+    Fibonacci.fill(new long[93], 0, 93);
+  }
 }
@@ -0,0 +1,246 @@
+package examples.chapter01;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static examples.chapter01.Functional.firstIdx;
+import static examples.chapter01.Functional.foldLeft;
+import static examples.chapter01.Functional.lastIdx;
+import static examples.chapter01.Functional.parallelFirstIdx;
+import static examples.chapter01.Functional.parallelLastIdx;
+import static examples.chapter01.Functional.reduce;
+import static examples.chapter01.Functional.scan;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FunctionalTest {
+
+  @Test
+  public void firstIdxAndLastIdxShouldFindTheFirstAndLastMatch() {
+    Integer[] xs = {4, 7, 2, 9, 2, 8};
+
+    assertEquals(2, firstIdx(xs, x -> x == 2));
+    assertEquals(4, lastIdx(xs, x -> x == 2));
+    assertEquals(3, firstIdx(xs, x -> x > 8));
+    assertEquals(3, lastIdx(xs, x -> x > 8));
+    assertEquals(-1, firstIdx(xs, x -> x > 9));
+    assertEquals(-1, lastIdx(xs, x -> x > 9));
+    assertEquals(-1, firstIdx(new Integer[0], x -> true));
+    assertEquals(-1, lastIdx(new Integer[0], x -> true));
+  }
+
+  @Test
+  public void primitiveVersionsShouldMatchTheBoxedOnes() {
+    int[] ints = {4, 7, 2, 9, 2, 8};
+    long[] longs = {4, 7, 2, 9, 2, 8};
+    double[] doubles = {4, 7, 2, 9, 2, 8};
+
+    assertEquals(2, firstIdx(ints, x -> x == 2));
+    assertEquals(4, lastIdx(ints, x -> x == 2));
+    assertEquals(2, firstIdx(longs, x -> x == 2));
+    assertEquals(4, lastIdx(longs, x -> x == 2));
+    assertEquals(2, firstIdx(doubles, x -> x == 2));
+    assertEquals(4, lastIdx(doubles, x -> x == 2));
+    assertEquals(-1, lastIdx(doubles, Double::isNaN));
+  }
+
+  @Test
+  public void listVersionsShouldWorkOnAnyKindOfList() {
+    List<String> words = Arrays.asList("a", "bb", "c", "dd", "e");
+    Predicate<Object> twoLong = x -> x.toString().length() == 2;
+
+    for (List<String> xs : Arrays.asList(words, new ArrayList<>(words), new LinkedList<>(words))) {
+      assertEquals(1, firstIdx(xs, twoLong));
+      assertEquals(3, lastIdx(xs, twoLong));
+      assertEquals(0, firstIdx(xs, x -> true));
+      assertEquals(4, lastIdx(xs, x -> true));
+      assertEquals(-1, firstIdx(xs, String::isEmpty));
+      assertEquals(-1, lastIdx(xs, String::isEmpty));
+    }
+
+    assertEquals(-1, lastIdx(new LinkedList<String>(), x -> true));
+  }
+
+  @Test
+  public void lastIdxShouldStopAtTheFirstMatchFromTheEnd() {
+    int[] calls = {0};
+    lastIdx(new int[]{1, 2, 3, 4, 5}, x -> { calls[0]++; return x == 4; });
+    assertEquals(2, calls[0]);
+  }
+
+  @Test
+  public void foldLeftShouldCombineFromTheLeft() {
+    assertEquals("abc", foldLeft(Arrays.asList("a", "b", "c"), "", String::concat));
+    assertEquals("cba", foldLeft(new String[]{"a", "b", "c"}, "", (acc, x) -> x + acc));
+    assertEquals(Integer.valueOf(0), foldLeft(Collections.<Integer>emptyList(), 0, Integer::sum));
+  }
+
+  @Test
+  public void reduceShouldMatchFoldLeftForAnyGrain() {
+    long[] longs = new Random(22).longs(10_000, -1000, 1000).toArray();
+    double[] doubles = new double[longs.length];
+    String[] strings = new String[longs.length];
+    for (int i = 0; i < longs.length; i++) {
+      doubles[i] = longs[i];  // small whole numbers, so adding them up is exact in any order
+      strings[i] = Long.toString(longs[i] & 7);
+    }
+    long sum = 0;
+    for (long x : longs) sum += x;
+    String concatenated = foldLeft(strings, "", String::concat);
+
+    for (int grain : new int[]{1, 7, 1000, 10_000, 1 << 20}) {
+      assertEquals(sum, reduce(longs, 0, Long::sum, grain));
+      assertEquals(sum, reduce(doubles, 0, Double::sum, grain), 0);
+      assertEquals(Arrays.stream(longs).max().getAsLong(), reduce(longs, Long.MIN_VALUE, Math::max, grain));
+      // Concatenation isn't commutative, so this checks the blocks are combined in order
+      assertEquals(concatenated, reduce(strings, "", String::concat, grain));
+      assertEquals(concatenated, reduce(new LinkedList<>(Arrays.asList(strings)), "", String::concat, grain));
+    }
+
+    assertEquals(42, reduce(new long[0], 42, Long::sum));
+    assertEquals("", reduce(new String[0], "", String::concat));
+  }
+
+  @Test
+  public void scanShouldGiveRunningTotals() {
+    long[] longs = new Random(22).longs(10_000, -1000, 1000).toArray();
+    double[] doubles = Arrays.stream(longs).asDoubleStream().toArray();
+    String[] strings = Arrays.stream(longs).mapToObj(x -> Long.toString(x & 7)).toArray(String[]::new);
+
+    long[] expected = longs.clone();
+    Arrays.parallelPrefix(expected, Long::sum);
+    String[] expectedStrings = strings.clone();
+    Arrays.parallelPrefix(expectedStrings, String::concat);
+
+    for (int grain : new int[]{1, 7, 1000, 10_000, 1 << 20}) {
+      assertArrayEquals(expected, scan(longs, Long::sum, grain));
+      assertArrayEquals(Arrays.stream(expected).asDoubleStream().toArray(), scan(doubles, Double::sum, grain), 0);
+      assertArrayEquals(expectedStrings, scan(strings, String::concat, grain));
+    }
+
+    assertArrayEquals(new long[0], scan(new long[0], Long::sum));
+    assertArrayEquals(new long[]{5}, scan(new long[]{5}, Long::sum));
+  }
+
+  @Test
+  public void parallelIdxShouldMatchSequentialIdx() {
+    int[] xs = new Random(22).ints(50_000, 0, 100_000).toArray();
+
+    for (int target : new int[]{xs[0], xs[123], xs[25_000], xs[49_999], -1}) {
+      for (int grain : new int[]{1, 100, 4096, 1 << 20}) {
+        assertEquals(firstIdx(xs, x -> x == target), parallelFirstIdx(xs.length, i -> xs[i] == target, grain));
+        assertEquals(lastIdx(xs, x -> x == target), parallelLastIdx(xs.length, i -> xs[i] == target, grain));
+      }
+    }
+
+    Integer[] boxed = Arrays.stream(xs).boxed().toArray(Integer[]::new);
+    assertEquals(firstIdx(xs, x -> x % 1000 == 0), parallelFirstIdx(boxed, x -> x % 1000 == 0));
+    assertEquals(lastIdx(xs, x -> x % 1000 == 0), parallelLastIdx(Arrays.asList(boxed), x -> x % 1000 == 0));
+    assertEquals(-1, parallelFirstIdx(new double[0], x -> true));
+    assertEquals(-1, parallelLastIdx(new long[0], x -> true));
+  }
+
+  @Test
+  public void parallelFirstIdxShouldStopLookingOnceItFindsAMatch() {
+    AtomicInteger calls = new AtomicInteger();
+    int n = 1 << 20;
+
+    // Only one match, so every block without it would be searched to the end if nothing stopped it
+    assertEquals(10, parallelFirstIdx(n, i -> calls.incrementAndGet() > 0 && i == 10, 1024));
+    assertTrue("calls=" + calls, calls.get() < n / 4);
+
+    calls.set(0);
+    assertEquals(n - 11, parallelLastIdx(n, i -> calls.incrementAndGet() > 0 && i == n - 11, 1024));
+    assertTrue("calls=" + calls, calls.get() < n / 4);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void reduceShouldRejectAZeroGrain() {
+    reduce(new long[10], 0, Long::sum, 0);
+  }
+
+  @Test
+  public void seqShouldGiveTheSameAnswerPushedOrPulled() {
+    Functional.Seq<String> seq = Functional.Seq.of("a", "bb", "ccc", "dd", "eeee", "f")
+      .filter(x -> x.length() > 1)
+      .map(String::toUpperCase)
+      .takeWhile(x -> x.length() < 4);
+
+    List<String> pulled = new ArrayList<>();
+    for (String x : seq) pulled.add(x);
+
+    assertEquals(Arrays.asList("BB", "CCC", "DD"), seq.toList());
+    assertEquals(seq.toList(), pulled);
+    assertEquals("BBCCCDD", seq.foldLeft("", String::concat));
+    assertEquals(Arrays.asList(2, 3, 2), seq.mapToLong(String::length).mapToObj(x -> (int) x).toList());
+  }
+
+  @Test
+  public void seqShouldOnlyDoAsMuchWorkAsItNeedsTo() {
+    AtomicInteger calls = new AtomicInteger();
+    Functional.LongSeq squares = Functional.LongSeq.iterate(1, x -> x + 1)
+      .map(x -> {
+        calls.incrementAndGet();
+        return x * x;
+      })
+      .takeWhile(x -> x < 100);
+
+    // Nothing runs until asked
+    assertEquals(0, calls.get());
+    assertEquals(285, squares.sum());
+    assertEquals(10, calls.get());
+
+    PrimitiveIterator.OfLong it = squares.iterator();
+    assertEquals(1, it.nextLong());
+    assertEquals(4, it.nextLong());
+    assertEquals(12, calls.get());
+  }
+
+  @Test
+  public void zipShouldStopAtTheShorterSequence() {
+    Functional.LongSeq xs = Functional.LongSeq.range(0, 5);
+    Functional.LongSeq ys = Functional.LongSeq.of(10, 20, 30);
+
+    assertArrayEquals(new long[]{10, 21, 32}, xs.zip(ys, Long::sum).toArray());
+    assertArrayEquals(new long[]{10, 21, 32}, ys.zip(xs, Long::sum).toArray());
+    assertArrayEquals(new long[]{10, 21, 32}, toArray(xs.zip(ys, Long::sum).iterator()));
+
+    Functional.Seq<String> words = Functional.Seq.of("a", "b", "c");
+    assertEquals(Arrays.asList("a0", "b1", "c2"), words.zip(xs.mapToObj(x -> x), (w, x) -> w + x).toList());
+    Iterator<String> it = words.zip(Functional.Seq.of(1), (w, x) -> w + x).iterator();
+    assertEquals("a1", it.next());
+    assertFalse(it.hasNext());
+  }
+
+  @Test
+  public void forEachWhileShouldSayWhetherTheSinkStoppedIt() {
+    Functional.LongSeq seq = Functional.LongSeq.range(0, 10);
+
+    assertTrue(seq.forEachWhile(x -> true));
+    assertFalse(seq.forEachWhile(x -> x < 5));
+    assertTrue(seq.takeWhile(x -> x < 5).forEachWhile(x -> true));
+    assertFalse(seq.takeWhile(x -> x < 5).forEachWhile(x -> x < 4));
+    assertTrue(seq.zip(Functional.LongSeq.of(1, 2), Long::sum).forEachWhile(x -> true));
+    assertFalse(seq.zip(Functional.LongSeq.of(1, 2), Long::sum).forEachWhile(x -> false));
+    assertArrayEquals(new long[0], seq.filter(x -> x > 10).toArray());
+    assertArrayEquals(new long[]{0, 3, 6, 9}, toArray(seq.filter(x -> x % 3 == 0).iterator()));
+  }
+
+  private static long[] toArray(PrimitiveIterator.OfLong it) {
+    List<Long> out = new ArrayList<>();
+    it.forEachRemaining((long x) -> out.add(x));
+    return out.stream().mapToLong(x -> x).toArray();
+  }
+}
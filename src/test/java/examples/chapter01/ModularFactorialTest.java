@@ -0,0 +1,67 @@
+package examples.chapter01;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class ModularFactorialTest {
+
+  private static final int P = 1_000_000_007;
+
+  @Test
+  public void factorialShouldComputeFactorialsModP() {
+    ModularFactorial mf = new ModularFactorial(300_000, P);
+    BigInteger bigP = BigInteger.valueOf(P);
+
+    for (int n : new int[]{0, 1, 2, 20, 21, 1000, 65535, 65536, 65537, 300_000}) {
+      assertEquals("factorial(" + n + ")", FactorialBig.factorial(n).mod(bigP).longValue(), mf.factorial(n));
+      assertEquals("factorial(" + n + ") * inverseFactorial(" + n + ")", 1,
+        mf.factorial(n) * mf.inverseFactorial(n) % P);
+    }
+  }
+
+  @Test
+  public void binomialShouldMatchBigIntegerArithmetic() {
+    ModularFactorial mf = new ModularFactorial(2000, P);
+    BigInteger bigP = BigInteger.valueOf(P);
+
+    for (int n = 0; n <= 2000; n += 123) {
+      for (int k = 0; k <= n; k += 37) {
+        assertEquals("binomial(" + n + ", " + k + ")", binomial(n, k).mod(bigP).longValue(), mf.binomial(n, k));
+      }
+    }
+
+    assertEquals("binomial(5, -1)", 0, mf.binomial(5, -1));
+    assertEquals("binomial(5, 6)", 0, mf.binomial(5, 6));
+  }
+
+  @Test
+  public void binomialShouldUseLucasForNAboveP() {
+    ModularFactorial mf = new ModularFactorial(100, 13);
+
+    assertEquals("factorial(13)", 0, mf.factorial(13));
+
+    for (int n = 0; n <= 400; n += 7) {
+      for (int k = 0; k <= n; k += 3) {
+        assertEquals("binomial(" + n + ", " + k + ")", binomial(n, k).mod(BigInteger.valueOf(13)).longValue(),
+          mf.binomial(n, k));
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void constructorShouldRejectCompositeModuli() {
+    new ModularFactorial(10, 15);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void factorialShouldThrowPastTheTable() {
+    new ModularFactorial(10, P).factorial(11);
+  }
+
+  private static BigInteger binomial(int n, int k) {
+    return FactorialBig.factorial(n).divide(FactorialBig.factorial(k).multiply(FactorialBig.factorial(n - k)));
+  }
+}
@@ -0,0 +1,74 @@
+package examples.chapter01;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class ParallelSieveTest {
+
+  private final ForkJoinPool pool = new ForkJoinPool(4);
+  private final ParallelSieve sieve = new ParallelSieve(pool);
+
+  @After
+  public void tearDown() {
+    pool.shutdown();
+  }
+
+  @Test
+  public void countPrimesShouldCountPrimesInRanges() {
+    assertEquals("countPrimes(0, 1)", 0, sieve.countPrimes(0, 1));
+    assertEquals("countPrimes(0, 2)", 1, sieve.countPrimes(0, 2));
+    assertEquals("countPrimes(2, 3)", 2, sieve.countPrimes(2, 3));
+    assertEquals("countPrimes(4, 4)", 0, sieve.countPrimes(4, 4));
+    assertEquals("countPrimes(10, 5)", 0, sieve.countPrimes(10, 5));
+    assertEquals("countPrimes(0, 100)", 25, sieve.countPrimes(0, 100));
+    assertEquals("countPrimes(0, 10^7)", 664579, sieve.countPrimes(0, 10_000_000));
+    assertEquals("countPrimes(10^7, 2*10^7)", 1270607 - 664579, sieve.countPrimes(10_000_000, 20_000_000));
+  }
+
+  @Test
+  public void primesInShouldListPrimesInOrder() {
+    assertArrayEquals(new int[]{2, 3, 5, 7}, sieve.primesIn(0, 10).toArray());
+    assertArrayEquals(new int[]{11, 13, 17, 19}, sieve.primesIn(11, 20).toArray());
+    assertArrayEquals(new int[0], sieve.primesIn(24, 28).toArray());
+    assertEquals(664579, sieve.primesIn(0, 10_000_000).parallel().count());
+  }
+
+  @Test
+  public void primesInShouldWorkWithLongBounds() {
+    long lo = 100_000_000_000_000L;
+    long hi = lo + 5000;
+
+    long[] expected = LongStream.rangeClosed(lo, hi)
+      .filter(n -> BigInteger.valueOf(n).isProbablePrime(50))
+      .toArray();
+
+    assertArrayEquals(expected, sieve.primesIn(lo, hi).toArray());
+    assertEquals(expected.length, sieve.countPrimes(lo, hi));
+  }
+
+  @Test
+  public void nthPrimeShouldFindTheNthPrime() {
+    assertEquals("nthPrime(1)", 2, sieve.nthPrime(1));
+    assertEquals("nthPrime(2)", 3, sieve.nthPrime(2));
+    assertEquals("nthPrime(10)", 29, sieve.nthPrime(10));
+    assertEquals("nthPrime(1000)", 7919, sieve.nthPrime(1000));
+    assertEquals("nthPrime(10^6)", 15485863, sieve.nthPrime(1_000_000));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void nthPrimeShouldThrowBelowOne() {
+    sieve.nthPrime(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void countPrimesShouldThrowAboveMaxBound() {
+    sieve.countPrimes(0, ParallelSieve.MAX_BOUND + 1);
+  }
+}
@@ -0,0 +1,127 @@
+package examples.chapter01;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PrimeTableTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void isPrimeShouldAgreeWithTheSieve() throws IOException {
+    try (PrimeTable table = PrimeTable.open(file(), 100_000)) {
+      int[] primes = SegmentedSieve.basePrimes(100_000);
+      int next = 0;
+
+      assertTrue("isPrime(2)", table.isPrime(2));
+      for (int n = 3; n <= 100_000; n++) {
+        boolean expected = next < primes.length && primes[next] == n;
+        if (expected) next++;
+        assertEquals("isPrime(" + n + ")", expected, table.isPrime(n));
+      }
+
+      assertFalse("isPrime(1)", table.isPrime(1));
+      assertFalse("isPrime(0)", table.isPrime(0));
+      assertFalse("isPrime(-7)", table.isPrime(-7));
+    }
+  }
+
+  @Test
+  public void largestPrimeUpToShouldFindTheLargestPrime() throws IOException {
+    try (PrimeTable table = PrimeTable.open(file(), 1000)) {
+      assertEquals("largestPrimeUpTo(2)", 2, table.largestPrimeUpTo(2));
+      assertEquals("largestPrimeUpTo(3)", 3, table.largestPrimeUpTo(3));
+      assertEquals("largestPrimeUpTo(4)", 3, table.largestPrimeUpTo(4));
+      assertEquals("largestPrimeUpTo(348)", 347, table.largestPrimeUpTo(348));
+      assertEquals("largestPrimeUpTo(10^7)", 9999991, table.largestPrimeUpTo(10_000_000));
+    }
+  }
+
+  @Test
+  public void nextPrimeShouldFindTheNextPrime() throws IOException {
+    try (PrimeTable table = PrimeTable.open(file(), 1000)) {
+      assertEquals("nextPrime(-5)", 2, table.nextPrime(-5));
+      assertEquals("nextPrime(2)", 3, table.nextPrime(2));
+      assertEquals("nextPrime(3)", 5, table.nextPrime(3));
+      assertEquals("nextPrime(346)", 347, table.nextPrime(346));
+      assertEquals("nextPrime(347)", 349, table.nextPrime(347));
+
+      // Right at the end of the table, so it has to grow to find the answer
+      long bound = table.bound();
+      long expected = table.largestPrimeUpTo(bound) + 1;
+      while (!isPrimeSlow(expected)) expected++;
+      assertEquals("nextPrime(bound)", expected, table.nextPrime(table.largestPrimeUpTo(bound)));
+    }
+  }
+
+  @Test
+  public void reopeningShouldReuseTheFile() throws IOException {
+    Path file = file();
+
+    try (PrimeTable table = PrimeTable.open(file, 1_000_000)) {
+      assertTrue(table.bound() >= 1_000_000);
+    }
+    long size = Files.size(file);
+
+    try (PrimeTable table = PrimeTable.open(file, 1000)) {
+      assertTrue("keeps the bound from the file", table.bound() >= 1_000_000);
+      assertEquals("largestPrimeUpTo(10^6)", 999983, table.largestPrimeUpTo(1_000_000));
+    }
+    assertEquals("file didn't change", size, Files.size(file));
+  }
+
+  @Test
+  public void queriesShouldGrowTheTableOnDemand() throws IOException {
+    Path file = file();
+
+    try (PrimeTable table = PrimeTable.open(file, 1000)) {
+      long bound = table.bound();
+      assertTrue("isPrime(15485863)", table.isPrime(15485863));
+      assertTrue("table grew", table.bound() > bound);
+    }
+
+    try (PrimeTable table = PrimeTable.open(file, 1000)) {
+      assertTrue("growth was saved", table.bound() >= 15485863);
+    }
+  }
+
+  @Test
+  public void openShouldRecoverFromAFirstGrowThatNeverFinished() throws IOException {
+    // What a crash part way through the first grow leaves: the file is full size, but the header was never written
+    Path file = file();
+    Files.write(file, new byte[16 + 8 * 1024]);
+
+    try (PrimeTable table = PrimeTable.open(file, 100_000)) {
+      assertEquals("largestPrimeUpTo(10^5)", 99991, table.largestPrimeUpTo(100_000));
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void openShouldRejectOtherFiles() throws IOException {
+    Path file = file();
+    Files.write(file, "not a prime table at all".getBytes());
+    PrimeTable.open(file, 1000);
+  }
+
+  private Path file() throws IOException {
+    return folder.newFile().toPath();
+  }
+
+  private static boolean isPrimeSlow(long n) {
+    if (n < 2) return false;
+    for (long d = 2; d * d <= n; d++) {
+      if (n % d == 0) return false;
+    }
+    return true;
+  }
+}
@@ -0,0 +1,88 @@
+package examples.chapter01;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static examples.chapter01.Primes.isPrime;
+import static examples.chapter01.Primes.largestPrimeUpTo;
+import static examples.chapter01.Primes.nextPrime;
+import static examples.chapter01.Primes.prevPrime;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PrimesTest {
+
+  @Test
+  public void isPrimeShouldAgreeWithTheSieve() {
+    // Straddles the end of the lookup table, so both paths get checked
+    ParallelSieve sieve = new ParallelSieve();
+    long[] primes = sieve.primesIn(0L, 200_000L).toArray();
+    int next = 0;
+
+    for (long n = -10; n <= 200_000; n++) {
+      boolean expected = next < primes.length && primes[next] == n;
+      if (expected) next++;
+      assertEquals("isPrime(" + n + ")", expected, isPrime(n));
+    }
+  }
+
+  @Test
+  public void isPrimeShouldAgreeWithBigIntegerOnLargeNumbers() {
+    Random rng = new Random(42);
+
+    for (int i = 0; i < 20_000; i++) {
+      long n = (rng.nextLong() >>> 1) >>> rng.nextInt(40);
+      assertEquals("isPrime(" + n + ")", BigInteger.valueOf(n).isProbablePrime(100), isPrime(n));
+    }
+  }
+
+  @Test
+  public void isPrimeShouldCatchStrongPseudoprimes() {
+    assertFalse("Carmichael 561", isPrime(561));
+    assertFalse("Carmichael 2465", isPrime(2465));
+    assertFalse("spsp(2, 7, 61)", isPrime(4_759_123_141L));
+    assertFalse("spsp to bases 2..37", isPrime(3_825_123_056_546_413_051L));
+    assertFalse("3215031751", isPrime(3_215_031_751L));
+
+    assertTrue("2^31 - 1", isPrime(Integer.MAX_VALUE));
+    assertTrue("2^61 - 1", isPrime((1L << 61) - 1));
+    assertTrue("2^63 - 25", isPrime(Long.MAX_VALUE - 24));
+    assertFalse("2^63 - 1", isPrime(Long.MAX_VALUE));
+  }
+
+  @Test
+  public void nextPrimeShouldFindTheNextPrime() {
+    assertEquals("nextPrime(-1)", 2, nextPrime(-1));
+    assertEquals("nextPrime(2)", 3, nextPrime(2));
+    assertEquals("nextPrime(3)", 5, nextPrime(3));
+    assertEquals("nextPrime(2^31 - 1)", 2147483659L, nextPrime(Integer.MAX_VALUE));
+    assertEquals("nextPrime(10^18)", 1_000_000_000_000_000_003L, nextPrime(1_000_000_000_000_000_000L));
+  }
+
+  @Test
+  public void prevPrimeAndLargestPrimeUpToShouldFindSmallerPrimes() {
+    assertEquals("prevPrime(3)", 2, prevPrime(3));
+    assertEquals("prevPrime(347)", 337, prevPrime(347));
+    assertEquals("largestPrimeUpTo(347)", 347, largestPrimeUpTo(347));
+    assertEquals("largestPrimeUpTo(2^31 - 2)", 2147483629, largestPrimeUpTo(Integer.MAX_VALUE - 1));
+    assertEquals("largestPrimeUpTo(2^63 - 1)", Long.MAX_VALUE - 24, largestPrimeUpTo(Long.MAX_VALUE));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void nextPrimeShouldThrowPastTheLargestLongPrime() {
+    nextPrime(Long.MAX_VALUE - 24);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void prevPrimeShouldThrowAtTwo() {
+    prevPrime(2);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void largestPrimeUpToShouldThrowBelowTwo() {
+    largestPrimeUpTo(1);
+  }
+}
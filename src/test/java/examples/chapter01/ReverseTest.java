@@ -2,9 +2,12 @@ package examples.chapter01;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Random;
 
 import static examples.chapter01.Reverse.reverse;
 import static org.junit.Assert.assertEquals;
@@ -32,6 +35,59 @@ public class ReverseTest {
     testCase(Arrays.asList("ab", "cde", "fghi"), Arrays.asList("ihgf", "edc", "ba"));
   }
 
+  @Test
+  public void reverseShouldKeepSurrogatePairsTogether() {
+    assertEquals("\ud83d\ude00b a", reverse("a b\ud83d\ude00"));
+    assertEquals("\ud83d\ude01\ud83d\ude00", reverse("\ud83d\ude00\ud83d\ude01"));
+
+    // Random mixes of ASCII, pairs, and unpaired halves should match StringBuilder.reverse, which does the same thing
+    char[] alphabet = {'a', 'b', '\u00e9', '\ud83d', '\ude00', '\udbff', '\udfff'};
+    Random random = new Random(20);
+    for (int i = 0; i < 2000; i++) {
+      char[] s = new char[random.nextInt(40)];
+      for (int j = 0; j < s.length; j++) s[j] = alphabet[random.nextInt(alphabet.length)];
+
+      String str = new String(s);
+      assertEquals(str, new StringBuilder(str).reverse().toString(), reverse(str));
+    }
+  }
+
+  @Test
+  public void reverseShouldWorkOnPartOfACharArray() {
+    char[] a = "xxa\ud83d\ude00cxx".toCharArray();
+    reverse(a, 2, 4);
+    assertEquals("xxc\ud83d\ude00axx", new String(a));
+  }
+
+  @Test
+  public void reverseShouldHandleStringsBiggerThanTheScratchBuffer() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 100_000; i++) sb.append((char) ('a' + i % 26));
+    String s = sb.toString();
+
+    assertEquals(sb.reverse().toString(), reverse(s));
+    assertEquals("cba", reverse("abc"));
+  }
+
+  @Test
+  public void reverseGraphemesShouldKeepCombiningMarksWithTheirLetter() {
+    // e + combining acute accent, then a surrogate pair
+    assertEquals("\ud83d\ude00 e\u0301t", Reverse.reverseGraphemes("te\u0301 \ud83d\ude00"));
+    assertEquals("", Reverse.reverseGraphemes(""));
+    assertEquals("cba", Reverse.reverseGraphemes("abc"));
+  }
+
+  @Test
+  public void reverseShouldGiveTheSameAnswerInParallel() {
+    List<String> input = new ArrayList<>();
+    for (int i = 0; i < 3 * Reverse.PARALLEL_THRESHOLD; i++) input.add("line " + i + " \ud83d\ude00");
+
+    List<String> expected = reverse(input);
+    assertEquals(expected, reverse(input, true));
+    assertEquals(expected, reverse(new LinkedList<>(input), true));
+    assertEquals(expected, reverse(new LinkedList<>(input)));
+  }
+
   private static void testCase(List<String> input, List<String> expected) {
     assertEquals("reverse(" + input + ")", expected, reverse(input));
   }
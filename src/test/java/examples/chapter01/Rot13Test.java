@@ -0,0 +1,148 @@
+package examples.chapter01;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class Rot13Test {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void rot13ShouldRotateLettersOnly() {
+    assertEquals('N', Rot13.rot13('A'));
+    assertEquals('A', Rot13.rot13('N'));
+    assertEquals('m', Rot13.rot13('z'));
+    assertEquals('@', Rot13.rot13('@'));
+    assertEquals('[', Rot13.rot13('['));
+    assertEquals('\u00e9', Rot13.rot13('\u00e9'));
+
+    for (char c = 0; c < 0x200; c++) {
+      assertEquals(c, Rot13.rot13(Rot13.rot13(c)));
+    }
+  }
+
+  @Test
+  public void rot13AsciiShouldMatchRot13OnEveryByte() {
+    for (int b = 0; b < 0x80; b++) {
+      long word = b * 0x0101010101010101L;
+      assertEquals("byte " + b, Rot13.rot13((char) b) * 0x0101010101010101L, Rot13.rot13Ascii(word));
+    }
+  }
+
+  @Test
+  public void bulkRot13ShouldMatchOneAtATime() {
+    Random rng = new Random(9);
+
+    for (int round = 0; round < 200; round++) {
+      String text = randomText(rng, rng.nextInt(100));
+      byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+      int off = utf8.length == 0 ? 0 : rng.nextInt(utf8.length);
+      int len = rng.nextInt(utf8.length - off + 1);
+
+      byte[] expected = utf8.clone();
+      for (int i = off; i < off + len; i++) expected[i] = (byte) Rot13.rot13((char) (expected[i] & 0xff));
+
+      byte[] array = utf8.clone();
+      Rot13.rot13(array, off, len);
+      assertArrayEquals(expected, array);
+
+      ByteBuffer[] buffers = {ByteBuffer.allocateDirect(utf8.length), ByteBuffer.allocate(utf8.length)};
+      for (ByteBuffer buf : buffers) {
+        buf.order(ByteOrder.BIG_ENDIAN).put(utf8).flip();
+        Rot13.rot13(buf, off, len);
+
+        byte[] actual = new byte[utf8.length];
+        buf.get(actual);
+        assertArrayEquals(expected, actual);
+        assertEquals("order unchanged", ByteOrder.BIG_ENDIAN, buf.order());
+      }
+
+      char[] chars = text.toCharArray();
+      Rot13.rot13(chars, 0, chars.length);
+      StringBuilder sb = new StringBuilder();
+      for (char c : text.toCharArray()) sb.append(Rot13.rot13(c));
+      assertEquals(sb.toString(), new String(chars));
+    }
+  }
+
+  @Test
+  public void rot13ShouldKeepUtf8Valid() {
+    String text = "Gr\u00fc\u00dfe, J\u00fcrgen! \u00c7a va? \u65e5\u672c\u8a9e \ud83d\ude00 Hello";
+    byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+
+    Rot13.rot13(utf8, 0, utf8.length);
+    assertEquals("Te\u00fc\u00dfr, W\u00fcetra! \u00c7n in? \u65e5\u672c\u8a9e \ud83d\ude00 Uryyb",
+      new String(utf8, StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void rot13ShouldCopyBetweenBuffers() {
+    byte[] text = "Hello, World! Uryyb, Jbeyq!".getBytes(StandardCharsets.US_ASCII);
+    ByteBuffer src = ByteBuffer.wrap(text);
+    ByteBuffer dst = ByteBuffer.allocateDirect(40);
+
+    Rot13.rot13(src, 7, dst, 3, 13);
+
+    byte[] out = new byte[13];
+    dst.position(3);
+    dst.get(out);
+    assertEquals("Jbeyq! Hello,", new String(out, StandardCharsets.US_ASCII));
+    assertEquals("src unchanged", "Hello, World! Uryyb, Jbeyq!", new String(text, StandardCharsets.US_ASCII));
+  }
+
+  @Test
+  public void rot13FileShouldEncodeEveryChunk() throws IOException {
+    // A bit more than one chunk, so the last one's short
+    byte[] text = randomText(new Random(10), Rot13.CHUNK_BYTES + 1000).getBytes(StandardCharsets.UTF_8);
+    Path in = folder.newFile().toPath();
+    Path out = folder.newFile().toPath();
+    Files.write(in, text);
+    Files.write(out, new byte[text.length + 1000]);  // longer than the result, so it has to be truncated
+
+    Rot13.rot13File(in, out);
+
+    Rot13.rot13(text, 0, text.length);
+    assertArrayEquals(text, Files.readAllBytes(out));
+  }
+
+  @Test
+  public void rot13FileShouldRefuseToWriteOverItsInput() throws IOException {
+    byte[] text = "Hello, World!".getBytes(StandardCharsets.US_ASCII);
+    Path in = folder.newFile().toPath();
+    Files.write(in, text);
+
+    try {
+      // Not equal as Paths, but the same file
+      Rot13.rot13File(in, in.getParent().resolve(".").resolve(in.getFileName()));
+      fail("expected IllegalArgumentException");
+    } catch (IllegalArgumentException expected) {
+      assertArrayEquals("in unchanged", text, Files.readAllBytes(in));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rot13ShouldCheckItsRange() {
+    Rot13.rot13(new byte[10], 4, 7);
+  }
+
+  private static String randomText(Random rng, int n) {
+    String alphabet = "abcxyzmnABCMNZ @[`{0123456789\n\t\u00fc\u00df\u65e5\ud83d\ude00";
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < n; i++) sb.append(alphabet.charAt(rng.nextInt(alphabet.length())));
+    return sb.toString();
+  }
+}
@@ -0,0 +1,109 @@
+package examples.chapter01;
+
+import org.junit.Test;
+
+import static examples.chapter01.SegmentedSieve.basePrimes;
+import static examples.chapter01.SegmentedSieve.isqrt;
+import static examples.chapter01.SegmentedSieve.largestPrimeUpTo;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class SegmentedSieveTest {
+
+  @Test
+  public void largestPrimeUpToShouldAgreeWithTrialDivision() {
+    int expected = 2;
+
+    for (int max = 2; max <= 5000; max++) {
+      if (isPrimeSlow(max)) expected = max;
+      assertEquals("largestPrimeUpTo(" + max + ")", expected, largestPrimeUpTo(max));
+    }
+  }
+
+  @Test
+  public void largestPrimeUpToShouldHandleASegmentThatDoesNotStartAtThree() {
+    // Only ever one segment, the one just below max. Around here it goes from reaching all the way down to 3 to not
+    for (int max = 2 * SegmentedSieve.SEGMENT_BITS - 50; max <= 2 * SegmentedSieve.SEGMENT_BITS + 50; max++) {
+      int expected = max;
+      while (!isPrimeSlow(expected)) expected--;
+      assertEquals("largestPrimeUpTo(" + max + ")", expected, largestPrimeUpTo(max));
+    }
+  }
+
+  @Test
+  public void basePrimesShouldReturnOddPrimes() {
+    assertArrayEquals(new int[0], basePrimes(2));
+    assertArrayEquals(new int[]{3}, basePrimes(3));
+    assertArrayEquals(new int[]{3, 5, 7, 11, 13, 17, 19, 23, 29}, basePrimes(30));
+    assertEquals("basePrimes(10^7).length", 664579 - 1, basePrimes(10_000_000).length);
+  }
+
+  @Test
+  public void basePrimesShouldCrossSegmentBoundaries() {
+    // Three segments and a bit, checked against a plain sieve of the whole range
+    int limit = 2 * 3 * SegmentedSieve.SEGMENT_BITS + 1000;
+    boolean[] composite = new boolean[limit + 1];
+    for (int p = 2; (long) p * p <= limit; p++) {
+      if (!composite[p]) for (int m = p * p; m <= limit; m += p) composite[m] = true;
+    }
+
+    int[] primes = basePrimes(limit);
+    int count = 0;
+    for (int n = 3; n <= limit; n += 2) {
+      if (!composite[n]) assertEquals("prime #" + count, n, primes[count++]);
+    }
+    assertEquals(count, primes.length);
+
+    // Limits just either side of the end of the first and second segments
+    for (int end : new int[]{2 * SegmentedSieve.SEGMENT_BITS + 1, 4 * SegmentedSieve.SEGMENT_BITS + 1}) {
+      for (int l = end - 10; l <= end + 10; l++) {
+        int expected = 0;
+        for (int n = 3; n <= l; n += 2) if (!composite[n]) expected++;
+        assertEquals("basePrimes(" + l + ").length", expected, basePrimes(l).length);
+      }
+    }
+  }
+
+  @Test
+  public void sieveSegmentShouldBeExactOnEitherSideOfASplit() {
+    // Numbers near 10^8, split into two segments at an arbitrary odd number, so the second one's first multiple of
+    // each prime has to be worked out from scratch
+    int[] primes = basePrimes(10_000);
+    long lo = 99_995_001L;
+    int split = 1237, nBits = 3000;
+
+    long[] first = new long[(split + 63) / 64];
+    long[] second = new long[(nBits - split + 63) / 64];
+    SegmentedSieve.sieveSegment(lo, split, first, primes);
+    SegmentedSieve.sieveSegment(lo + 2L * split, nBits - split, second, primes);
+
+    for (int i = 0; i < nBits; i++) {
+      int n = (int) (lo + 2L * i);
+      long[] bits = i < split ? first : second;
+      int bit = i < split ? i : i - split;
+      assertEquals(n + " composite", !isPrimeSlow(n), (bits[bit >>> 6] & 1L << bit) != 0);
+    }
+  }
+
+  @Test
+  public void isqrtShouldBeExact() {
+    assertEquals(0, isqrt(0));
+    assertEquals(1, isqrt(3));
+    assertEquals(2, isqrt(4));
+    assertEquals(3037000499L, isqrt(Long.MAX_VALUE));
+    assertEquals(3037000498L, isqrt(3037000499L * 3037000499L - 1));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void largestPrimeUpToShouldThrowBelowTwo() {
+    largestPrimeUpTo(1);
+  }
+
+  private static boolean isPrimeSlow(int n) {
+    if (n < 2) return false;
+    for (int d = 2; (long) d * d <= n; d++) {
+      if (n % d == 0) return false;
+    }
+    return true;
+  }
+}
@@ -20,6 +20,12 @@ public class SieveTest {
     assertEquals("largestPrimeUpTo(348)", 347, largestPrimeUpTo(348));
   }
 
+  @Test
+  public void largestPrimeUpToShouldWorkAllTheWayUpToMaxInt() {
+    assertEquals("largestPrimeUpTo(2147483647)", 2147483647, largestPrimeUpTo(Integer.MAX_VALUE));
+    assertEquals("largestPrimeUpTo(2147483646)", 2147483629, largestPrimeUpTo(Integer.MAX_VALUE - 1));
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void largestPrimeUpToShouldThrowBelowTwo() {
     largestPrimeUpTo(1);
@@ -2,6 +2,9 @@ package examples.chapter01;
 
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Random;
+
 import static examples.chapter01.SortNumbers.sortInPlace;
 import static org.junit.Assert.assertArrayEquals;
 
@@ -28,6 +31,16 @@ public class SortNumbersTest {
     testCase(input4, expected4);
   }
 
+  @Test
+  public void parallelSortShouldSort() {
+    double[] input = new Random(1).doubles(1_000_000).toArray();
+    double[] expected = input.clone();
+    Arrays.sort(expected);
+
+    SortNumbers.parallelSort(input);
+    assertArrayEquals(expected, input, 0);
+  }
+
   private static void testCase(double[] input, double[] expected) {
     sortInPlace(input);
     assertArrayEquals(expected, input, 1.0e-10);
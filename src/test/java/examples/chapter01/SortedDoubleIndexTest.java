@@ -0,0 +1,89 @@
+package examples.chapter01;
+
+import examples.chapter01.SortedDoubleIndex.Layout;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class SortedDoubleIndexTest {
+
+  @Test
+  public void everyLayoutShouldMatchALinearScan() {
+    Random rng = new Random(6);
+
+    for (int n : new int[]{0, 1, 2, 7, 8, 9, 63, 64, 65, 80, 81, 1000, 4097}) {
+      double[] sorted = new double[n];
+      for (int i = 0; i < n; i++) sorted[i] = rng.nextInt(n + 1);  // plenty of duplicates
+      if (n > 2) {
+        sorted[0] = Double.NEGATIVE_INFINITY;
+        sorted[n - 1] = Double.POSITIVE_INFINITY;
+      }
+      Arrays.sort(sorted);
+
+      double[] queries = new double[3 * n + 10];
+      for (int i = 0; i < queries.length; i++) queries[i] = rng.nextInt(n + 3) - 1 + (rng.nextBoolean() ? 0 : 0.5);
+      queries[0] = Double.NEGATIVE_INFINITY;
+      queries[1] = Double.POSITIVE_INFINITY;
+
+      for (Layout layout : Layout.values()) {
+        SortedDoubleIndex index = new SortedDoubleIndex(sorted, layout);
+        int[] batch = new int[queries.length];
+        index.lowerBound(queries, batch);
+
+        for (int q = 0; q < queries.length; q++) {
+          double x = queries[q];
+          int below = 0, atOrBelow = 0;
+          for (double d : sorted) {
+            if (d < x) below++;
+            if (d <= x) atOrBelow++;
+          }
+
+          String msg = layout + " n=" + n + " x=" + x;
+          assertEquals(msg, below, index.lowerBound(x));
+          assertEquals(msg, below, batch[q]);
+          assertEquals(msg, atOrBelow, index.upperBound(x));
+          assertEquals(msg, atOrBelow - 1, index.floor(x));
+          assertEquals(msg, below == n ? -1 : below, index.ceiling(x));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void zerosShouldCompareEqual() {
+    double[] sorted = {-1, -0.0, 0.0, 0.0, 1};
+
+    for (Layout layout : Layout.values()) {
+      SortedDoubleIndex index = new SortedDoubleIndex(sorted, layout);
+      assertArrayEquals(layout.toString(), new int[]{1, 1, 4, 4},
+        new int[]{index.lowerBound(0.0), index.lowerBound(-0.0), index.upperBound(0.0), index.upperBound(-0.0)});
+    }
+  }
+
+  @Test
+  public void autoShouldPickLearnedForEvenlySpreadData() {
+    double[] uniform = new Random(7).doubles(100_000).toArray();
+    Arrays.sort(uniform);
+    assertEquals(Layout.LEARNED, new SortedDoubleIndex(uniform).layout());
+
+    double[] skewed = new double[100_000];
+    for (int i = 0; i < skewed.length; i++) skewed[i] = Math.pow(2, i / 1000.0);
+    assertEquals(Layout.BRANCHLESS, new SortedDoubleIndex(skewed).layout());
+
+    assertEquals(Layout.BRANCHLESS, new SortedDoubleIndex(new double[]{1, 2, 3}).layout());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void constructorShouldRejectUnsortedArrays() {
+    new SortedDoubleIndex(new double[]{1, 3, 2});
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void constructorShouldRejectNaN() {
+    new SortedDoubleIndex(new double[]{1, Double.NaN});
+  }
+}
@@ -0,0 +1,196 @@
+package examples.chapter02.nestedtypes;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentLinkedStackTest {
+
+  private static final int THREADS = 8;
+
+  ConcurrentLinkedStack stack;
+  LinkableInteger one;
+  LinkableInteger two;
+
+  @Before
+  public void setUp() {
+    stack = new ConcurrentLinkedStack();
+    one = new LinkableInteger(1);
+    two = new LinkableInteger(2);
+  }
+
+  @Test
+  public void shouldBehaveLikeLinkedStackOnOneThread() {
+    assertTrue(stack.isEmpty());
+    stack.push(one);
+    stack.push(two);
+    assertFalse(stack.isEmpty());
+    assertEquals("{1,2}.peek()", 2, ((LinkableInteger) stack.peek()).getValue());
+
+    Iterator<LinkedStack.Linkable> iterator = stack.iterator();
+    assertEquals("{1,2}.next()", 2, ((LinkableInteger) iterator.next()).getValue());
+    assertEquals("{1}.next()", 1, ((LinkableInteger) iterator.next()).getValue());
+    assertFalse(iterator.hasNext());
+
+    assertEquals("{1,2}.pop()", 2, ((LinkableInteger) stack.pop()).getValue());
+    assertEquals("{1}.pop()", 1, ((LinkableInteger) stack.poll()).getValue());
+    assertNull(stack.poll());
+  }
+
+  @Test(expected = NoSuchElementException.class)
+  public void popOnEmptyStackShouldThrow() {
+    stack.pop();
+  }
+
+  @Test(expected = NoSuchElementException.class)
+  public void peekOnEmptyStackShouldThrow() {
+    stack.peek();
+  }
+
+  @Test
+  public void everyPushedNodeShouldBePoppedExactlyOnce() throws InterruptedException {
+    for (int slots : new int[]{0, 1, 4}) {
+      ConcurrentLinkedStack stack = new ConcurrentLinkedStack(slots);
+      int perThread = 50_000;
+      BitSet[] popped = new BitSet[THREADS];
+
+      // Every thread pushes its own numbers, and pops as many as it pushes, whoever's they are
+      run(t -> {
+        popped[t] = new BitSet();
+        for (int i = 0; i < perThread; i++) {
+          stack.push(new LinkableInteger(t * perThread + i));
+          if (i % 3 == 2) {
+            for (int j = 0; j < 3; j++) popped[t].set(popAndWait(stack).getValue());
+          }
+        }
+        for (int j = 0; j < perThread % 3; j++) popped[t].set(popAndWait(stack).getValue());
+      });
+
+      BitSet all = new BitSet();
+      int total = 0;
+      for (BitSet p : popped) {
+        all.or(p);
+        total += p.cardinality();
+      }
+      assertEquals("slots=" + slots + ", nothing popped twice", total, all.cardinality());
+      assertEquals("slots=" + slots + ", nothing lost", THREADS * perThread, all.cardinality());
+      assertTrue(stack.isEmpty());
+    }
+  }
+
+  @Test
+  public void poppingAndPushingTheSameNodesShouldNotCorruptTheStack() throws InterruptedException {
+    // The ABA case: nodes go back on the stack straight after they come off, so top keeps being a node that some
+    // other thread is half way through popping
+    int nodes = 4;
+    for (int i = 0; i < nodes; i++) stack.push(new LinkableInteger(i));
+
+    AtomicInteger emptyPolls = new AtomicInteger();
+    run(t -> {
+      for (int i = 0; i < 200_000; i++) {
+        LinkedStack.Linkable node = stack.poll();
+        if (node == null) {
+          emptyPolls.incrementAndGet();
+        } else {
+          stack.push(node);
+        }
+      }
+    });
+
+    List<Integer> left = new ArrayList<>();
+    while (!stack.isEmpty()) left.add(((LinkableInteger) stack.pop()).getValue());
+    left.sort(null);
+
+    assertEquals("emptyPolls=" + emptyPolls, "[0, 1, 2, 3]", left.toString());
+  }
+
+  @Test
+  public void aPopShouldSeeThePushBeforeItWhenNothingElsePops() throws InterruptedException {
+    // Thread 0 is the only popper. It pushes a node then pops, over and over, while the others only push. Its node is
+    // still on the stack when it pops, so it must get that node or one pushed after it, never one of its own older
+    // nodes, and never nothing
+    int rounds = 50_000;
+    int perPusher = 20_000;
+    BitSet popped = new BitSet();
+    int[] ownPops = new int[1];
+
+    run(t -> {
+      if (t == 0) {
+        for (int i = 0; i < rounds; i++) {
+          int mine = THREADS * perPusher + i;
+          stack.push(new LinkableInteger(mine));
+
+          int got = ((LinkableInteger) stack.pop()).getValue();
+          if (got == mine) ownPops[0]++;
+          else if (got >= THREADS * perPusher) throw new AssertionError("pushed " + mine + ", popped older " + got);
+          popped.set(got);
+        }
+      } else {
+        for (int i = 0; i < perPusher; i++) stack.push(new LinkableInteger(t * perPusher + i));
+      }
+    });
+
+    // Everything's either been popped or is still there, once
+    BitSet left = new BitSet();
+    while (!stack.isEmpty()) {
+      int x = ((LinkableInteger) stack.pop()).getValue();
+      assertFalse("popped and left behind: " + x, popped.get(x) || left.get(x));
+      left.set(x);
+    }
+    left.or(popped);
+    assertEquals("ownPops=" + ownPops[0], (THREADS - 1) * perPusher + rounds, left.cardinality());
+  }
+
+  private static LinkableInteger popAndWait(ConcurrentLinkedStack stack) {
+    while (true) {
+      LinkedStack.Linkable node = stack.poll();
+      if (node != null) return (LinkableInteger) node;
+      Thread.yield();
+    }
+  }
+
+  private interface Body {
+    void run(int thread);
+  }
+
+  /**
+   * Runs body on THREADS threads at once, and rethrows anything they throw
+   */
+  private static void run(Body body) throws InterruptedException {
+    CountDownLatch start = new CountDownLatch(1);
+    List<Throwable> errors = new ArrayList<>();
+    List<Thread> threads = new ArrayList<>();
+
+    for (int t = 0; t < THREADS; t++) {
+      int thread = t;
+      threads.add(new Thread(() -> {
+        try {
+          start.await();
+          body.run(thread);
+        } catch (Throwable e) {
+          synchronized (errors) {
+            errors.add(e);
+          }
+        }
+      }));
+    }
+
+    for (Thread thread : threads) thread.start();
+    start.countDown();
+    for (Thread thread : threads) thread.join();
+
+    if (!errors.isEmpty()) throw new AssertionError(errors.get(0));
+  }
+}
@@ -0,0 +1,135 @@
+package examples.chapter02.nestedtypes;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IntStackTest {
+
+  IntStack stack;
+
+  @Before
+  public void setUp() {
+    stack = new IntStack();
+  }
+
+  @Test
+  public void pushAndPopShouldBeLastInFirstOut() {
+    assertTrue(stack.isEmpty());
+    stack.push(1);
+    stack.push(2);
+    assertEquals("{1,2}.peek()", 2, stack.peek());
+    assertEquals(2, stack.size());
+
+    assertEquals("{1,2}.pop()", 2, stack.pop());
+    assertEquals("{1}.pop()", 1, stack.pop());
+    assertTrue(stack.isEmpty());
+  }
+
+  @Test
+  public void pushShouldGrowPastTheStartingCapacity() {
+    for (int i = 0; i < 1000; i++) stack.push(i);
+    assertEquals(1000, stack.size());
+    assertTrue(stack.capacity() >= 1000);
+    for (int i = 999; i >= 0; i--) assertEquals(i, stack.pop());
+  }
+
+  @Test
+  public void pushAllAndPopIntoShouldMatchOneAtATime() {
+    stack.push(-1);
+    stack.pushAll(new int[]{0, 1, 2, 3, 4, 5, 6}, 1, 5);
+    stack.pushAll(new int[100]);
+    assertEquals(106, stack.size());
+
+    int[] zeros = new int[100];
+    assertEquals(100, stack.popInto(zeros));
+    assertArrayEquals(new int[100], zeros);
+
+    int[] dst = new int[10];
+    assertEquals(6, stack.popInto(dst));
+    assertArrayEquals(new int[]{5, 4, 3, 2, 1, -1, 0, 0, 0, 0}, dst);
+    assertEquals(0, stack.popInto(dst));
+    assertTrue(stack.isEmpty());
+  }
+
+  @Test
+  public void shrinkShouldGiveMemoryBackButNotBelowTheStart() {
+    IntStack shrinking = new IntStack(8, true);
+    for (int i = 0; i < 1 << 16; i++) shrinking.push(i);
+    int full = shrinking.capacity();
+
+    for (int i = 0; i < (1 << 16) - 100; i++) shrinking.pop();
+    assertTrue(shrinking.capacity() < full / 64);
+    assertTrue(shrinking.capacity() >= 100);
+    for (int i = 99; i >= 0; i--) assertEquals(i, shrinking.pop());
+    assertEquals(8, shrinking.capacity());
+
+    // Without shrink on, it keeps the big array
+    for (int i = 0; i < 1 << 16; i++) stack.push(i);
+    stack.popInto(new int[1 << 16]);
+    assertEquals(full, stack.capacity());
+    stack.trimToSize();
+    assertEquals(IntStack.DEFAULT_CAPACITY, stack.capacity());
+  }
+
+  @Test
+  public void iteratorShouldGoFromTheTopDown() {
+    stack.pushAll(new int[]{1, 2, 3});
+    PrimitiveIterator.OfInt iterator = stack.iterator();
+
+    assertEquals(3, iterator.nextInt());
+    assertEquals(2, iterator.nextInt());
+    assertEquals(1, iterator.nextInt());
+    assertFalse(iterator.hasNext());
+    assertEquals("{1,2,3}.peek()", 3, stack.peek());
+  }
+
+  @Test(expected = ConcurrentModificationException.class)
+  public void iteratorShouldFailFastIfTheStackChanges() {
+    stack.pushAll(new int[]{1, 2, 3});
+    PrimitiveIterator.OfInt iterator = stack.iterator();
+
+    iterator.nextInt();
+    stack.pop();
+    iterator.nextInt();
+  }
+
+  @Test(expected = NoSuchElementException.class)
+  public void popOnEmptyStackShouldThrow() {
+    stack.pop();
+  }
+
+  @Test(expected = NoSuchElementException.class)
+  public void peekOnEmptyStackShouldThrow() {
+    stack.peek();
+  }
+
+  @Test(expected = NoSuchElementException.class)
+  public void nextOnEmptyIteratorShouldThrow() {
+    stack.iterator().nextInt();
+  }
+
+  @Test
+  public void pushingNothingShouldNotBreakIterators() {
+    stack.pushAll(new int[]{1, 2, 3});
+    PrimitiveIterator.OfInt iterator = stack.iterator();
+
+    assertEquals(3, iterator.nextInt());
+    stack.pushAll(new int[0]);
+    stack.pushAll(new int[]{4, 5}, 1, 0);
+    assertEquals(2, iterator.nextInt());
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void pushAllShouldRejectABadRange() {
+    stack.pushAll(new int[4], 2, 3);
+  }
+}
@@ -1,13 +1,22 @@
 package exercises.chapter01;
 
+import examples.chapter01.Fibonacci;
 import org.junit.Test;
 
+import java.math.BigInteger;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
 
 import static exercises.chapter01.FibonacciThreeTerms.fibonacci;
+import static exercises.chapter01.FibonacciThreeTerms.kStepTerm;
+import static exercises.chapter01.FibonacciThreeTerms.kStepTermMod;
+import static exercises.chapter01.FibonacciThreeTerms.term;
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 
 public class FibonacciThreeTermsTest {
 
@@ -27,6 +36,83 @@ public class FibonacciThreeTermsTest {
     fibonacci(-1);
   }
 
+  @Test
+  public void termShouldMatchTheSequence() {
+    int[] seq = fibonacci(37);  // the last one that fits in an int
+
+    for (int n = 0; n < seq.length; n++) {
+      assertEquals("term(" + n + ")", BigInteger.valueOf(seq[n]), term(n));
+    }
+  }
+
+  @Test
+  public void kStepTermWithTwoStepsShouldBeFibonacci() {
+    for (int n = 0; n < 200; n++) {
+      assertEquals(Fibonacci.fibonacciTermBig(n + 1), kStepTerm(2, n));
+    }
+  }
+
+  @Test
+  public void kStepTermShouldMatchIteration() {
+    for (int k = 1; k <= 8; k++) {
+      BigInteger[] seq = new BigInteger[300];
+      for (int n = 0; n < seq.length; n++) {
+        BigInteger sum = n == 0 ? BigInteger.ONE : BigInteger.ZERO;
+        for (int j = Math.max(0, n - k); j < n; j++) sum = sum.add(seq[j]);
+        seq[n] = sum;
+
+        assertEquals("k=" + k + " n=" + n, seq[n], kStepTerm(k, n));
+      }
+    }
+  }
+
+  @Test
+  public void kStepTermModShouldMatchBig() {
+    for (long m : new long[]{1, 7, 1_000_000_007L, 3037000499L}) {
+      for (int k = 1; k <= 6; k++) {
+        for (int n : new int[]{0, 1, 5, 100, 5000}) {
+          long expected = kStepTerm(k, n).mod(BigInteger.valueOf(m)).longValue();
+          assertEquals("k=" + k + " n=" + n + " m=" + m, expected, kStepTermMod(k, n, m));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void generatorsShouldMatchTerm() {
+    PrimitiveIterator.OfLong it = FibonacciThreeTerms.iterator();
+    long[] filled = new long[FibonacciThreeTerms.MAX_LONG_TERMS];
+    FibonacciThreeTerms.fill(filled, 0, filled.length);
+    long[] streamed = FibonacciThreeTerms.stream().limit(filled.length).toArray();
+
+    for (int n = 0; n < filled.length; n++) {
+      long expected = term(n).longValueExact();
+      assertEquals(expected, it.nextLong());
+      assertEquals(expected, filled[n]);
+      assertEquals(expected, streamed[n]);
+    }
+  }
+
+  @Test(expected = NoSuchElementException.class)
+  public void iteratorShouldEndAtTheLastTermThatFits() {
+    PrimitiveIterator.OfLong it = FibonacciThreeTerms.iterator();
+    for (int n = 0; n < FibonacciThreeTerms.MAX_LONG_TERMS; n++) it.nextLong();
+    assertFalse(it.hasNext());
+    it.nextLong();
+  }
+
+  @Test
+  public void streamShouldEndWithoutALimit() {
+    assertEquals(FibonacciThreeTerms.MAX_LONG_TERMS, FibonacciThreeTerms.stream().count());
+    assertEquals(term(FibonacciThreeTerms.MAX_LONG_TERMS - 1).longValueExact(),
+      FibonacciThreeTerms.stream().max().getAsLong());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void kStepTermShouldThrowWithNoSteps() {
+    kStepTerm(0, 1);
+  }
+
   private static <T> int[] array(List<Integer> xs) {
     int[] out = new int[xs.size()];
 